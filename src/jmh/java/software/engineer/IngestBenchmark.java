@@ -0,0 +1,66 @@
+package software.engineer;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分词与建图的基准测试
+ * 运行：mvn -Pjmh package && java -jar target/benchmarks.jar IngestBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class IngestBenchmark {
+    @Param({"10000", "100000", "1000000", "10000000"})
+    public int words;
+
+    private String text;
+    private File file;
+    private String[] args;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        text = ZipfCorpus.forSize(words).text(words, 42);
+        file = File.createTempFile("corpus", ".txt");
+        file.deleteOnExit();
+        Files.writeString(file.toPath(), text, StandardCharsets.ISO_8859_1);
+        args = new String[]{"-f", file.getPath()};
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public void tokenize(Blackhole blackhole) throws IOException {
+        WordTokenizer.tokenize(new StringReader(text), blackhole::consume);
+    }
+
+    @Benchmark
+    public CompactDictionary tokenizeToIds(Blackhole blackhole) throws IOException {
+        CompactDictionary dictionary = new CompactDictionary();
+        WordTokenizer.tokenize(new StringReader(text), dictionary, blackhole::consume);
+        return dictionary;
+    }
+
+    @Benchmark
+    public Graph buildGraph() throws IOException {
+        return App.buildGraph(new InputFile(args), "list", false);
+    }
+
+    @Benchmark
+    public Graph buildGraphParallel() throws IOException {
+        return App.buildGraph(new InputFile(args), "list", true);
+    }
+}
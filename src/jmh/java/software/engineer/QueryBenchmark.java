@@ -0,0 +1,106 @@
+package software.engineer;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 查询类操作的基准测试：桥接词、生成新文本、最短路径与随机游走
+ * 图结构通过 graph 参数选择（list / csr，小规模语料可加 -p graph=matrix）
+ * 运行：mvn -Pjmh package && java -jar target/benchmarks.jar QueryBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class QueryBenchmark {
+    private static final int BATCH = 1024;
+
+    @Param({"10000", "100000", "1000000", "10000000"})
+    public int words;
+
+    @Param({"list", "csr"})
+    public String graph;
+
+    private Graph g;
+    private BridgeIndex bridgeIndex;
+    private RandomWalker walker;
+    private int[] from, to;
+    private String sentence;
+    private Random random;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ZipfCorpus corpus = ZipfCorpus.forSize(words);
+        GraphBuilder builder = new GraphBuilder(new AdjListGraph());
+        builder.append(new StringReader(corpus.text(words, 42)));
+        g = switch (graph) {
+            case "list" -> builder.getGraph();
+            case "csr" -> CsrGraph.copyOf(builder.getGraph());
+            case "matrix" -> new AdjMatrixGraph(builder.getGraph());
+            default -> throw new IllegalArgumentException("Unknown graph type: " + graph);
+        };
+        bridgeIndex = new BridgeIndex(g);
+        walker = new RandomWalker(g, true);
+
+        // 查询的单词同样按 Zipf 分布抽取，高频词的度数更大
+        SplittableRandom sample = new SplittableRandom(7);
+        from = new int[BATCH];
+        to = new int[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            from[i] = vertex(corpus, sample);
+            to[i] = vertex(corpus, sample);
+        }
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 64; i++) text.append(corpus.sample(sample)).append(' ');
+        sentence = text.toString();
+        random = new Random(11);
+    }
+
+    private int vertex(ZipfCorpus corpus, SplittableRandom sample) {
+        int v;
+        while ((v = g.getVertex(corpus.sample(sample))) < 0) ;
+        return v;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void bridgeWords(Blackhole blackhole) {
+        for (int i = 0; i < BATCH; i++) blackhole.consume(bridgeIndex.bridges(from[i], to[i]));
+    }
+
+    @Benchmark
+    public String generateNewText() {
+        return App.generateNewText(bridgeIndex, sentence, random);
+    }
+
+    @Benchmark
+    public ShortestPaths dijkstra() {
+        return ShortestPaths.compute(g, from[cursor++ & (BATCH - 1)]);
+    }
+
+    @Benchmark
+    public Path shortestPath() {
+        int i = cursor++ & (BATCH - 1);
+        return g.shortestPath(from[i], to[i]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int randomWalkStep() {
+        int v = from[cursor++ & (BATCH - 1)];
+        for (int i = 0; i < BATCH; i++) {
+            int next = walker.next(v, random);
+            v = next < 0 ? from[i] : next;
+        }
+        return v;
+    }
+}
@@ -0,0 +1,62 @@
+package software.engineer;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * 基准测试用的合成语料：单词频率服从 Zipf 分布，近似自然语言文本
+ * 单词只由小写字母组成（序号的 26 进制表示），以保证分词后与生成时一致
+ */
+final class ZipfCorpus {
+    private final String[] vocabulary;
+    private final double[] cdf;
+
+    /**
+     * @param vocabularySize 词表大小
+     * @param exponent Zipf 指数，英文文本约为 1.0
+     */
+    ZipfCorpus(int vocabularySize, double exponent) {
+        this.vocabulary = new String[vocabularySize];
+        this.cdf = new double[vocabularySize];
+        double sum = 0;
+        for (int i = 0; i < vocabularySize; i++) {
+            vocabulary[i] = word(i);
+            sum += 1.0 / Math.pow(i + 1, exponent);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < vocabularySize; i++) cdf[i] /= sum;
+    }
+
+    private static String word(int rank) {
+        StringBuilder word = new StringBuilder();
+        do {
+            word.append((char) ('a' + rank % 26));
+            rank /= 26;
+        } while (rank > 0);
+        return word.toString();
+    }
+
+    String sample(SplittableRandom random) {
+        int i = Arrays.binarySearch(cdf, random.nextDouble());
+        return vocabulary[Math.min(i < 0 ? -i - 1 : i, vocabulary.length - 1)];
+    }
+
+    /**
+     * 生成由 words 个单词组成、以空格分隔的文本
+     */
+    String text(int words, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        StringBuilder text = new StringBuilder(words * 6);
+        for (int i = 0; i < words; i++) {
+            text.append(sample(random)).append(i % 16 == 15 ? ".\n" : " ");
+        }
+        return text.toString();
+    }
+
+    /**
+     * 按语料规模取词表大小：约每 10 个单词出现一个新词
+     */
+    static ZipfCorpus forSize(int words) {
+        return new ZipfCorpus(Math.max(1000, words / 10), 1.0);
+    }
+}
@@ -0,0 +1,252 @@
+package software.engineer;
+
+import java.util.*;
+
+/**
+ * 邻接表数据结构的图实现（稀疏图）
+ * 顶点通过 {@link CompactDictionary} 映射为 int 编号，每个顶点的出边保存在基本类型数组中，
+ * 内存占用与边数成正比，而不是顶点数的平方
+ */
+class AdjListGraph implements Graph {
+    private static final int INITIAL_DEGREE = 4;
+
+    private final CompactDictionary vertexes;
+    private int[][] targets; // targets[v][k]: v 的第 k 条出边的终点
+    private int[][] weights; // weights[v][k]: v 的第 k 条出边的权重
+    private int[] degree;    // 出度
+    private int[][] sources; // sources[v][k]: v 的第 k 条入边的起点（反向邻接）
+    private int[] inDegree;  // 入度
+    private final LongIntHashMap slots; // (from, to) -> 出边在 targets[from] 中的下标
+    private int size;
+
+    public AdjListGraph(String[] vertexes) {
+        this(vertexes.length);
+        for (String vertex : vertexes) addVertex(vertex);
+    }
+
+    public AdjListGraph(Graph other) {
+        this(other.size());
+        for (String vertex : other.getVertexes()) addVertex(vertex);
+        other.forEachEdge(this::addEdge);
+    }
+
+    public AdjListGraph() {
+        this(16);
+    }
+
+    private AdjListGraph(int capacity) {
+        capacity = Math.max(capacity, 1);
+        this.vertexes = new CompactDictionary(capacity);
+        this.targets = new int[capacity][];
+        this.weights = new int[capacity][];
+        this.degree = new int[capacity];
+        this.sources = new int[capacity][];
+        this.inDegree = new int[capacity];
+        this.slots = new LongIntHashMap(capacity * 2);
+        this.size = 0;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public void addVertex(String vertex) {
+        if (vertexes.intern(vertex) == this.size) allocate();
+    }
+
+    /**
+     * 按 UTF-8 字节添加顶点（已存在时忽略），供 {@link GraphBuilder} 分词时直接使用图的单词表
+     * @return 顶点编号，新顶点的编号为添加前的 size()
+     */
+    int intern(byte[] word, int start, int length) {
+        int id = vertexes.intern(word, start, length);
+        if (id == this.size) allocate();
+        return id;
+    }
+
+    /**
+     * 为刚加入单词表的顶点分配邻接表
+     */
+    private void allocate() {
+        if (this.size == this.degree.length) {
+            int capacity = this.size * 2;
+            this.targets = Arrays.copyOf(this.targets, capacity);
+            this.weights = Arrays.copyOf(this.weights, capacity);
+            this.degree = Arrays.copyOf(this.degree, capacity);
+            this.sources = Arrays.copyOf(this.sources, capacity);
+            this.inDegree = Arrays.copyOf(this.inDegree, capacity);
+        }
+        this.targets[this.size] = new int[INITIAL_DEGREE];
+        this.weights[this.size] = new int[INITIAL_DEGREE];
+        this.sources[this.size] = new int[INITIAL_DEGREE];
+        this.size++;
+    }
+
+    @Override
+    public List<String> getVertexes() {
+        return vertexes.words();
+    }
+
+    @Override
+    public int getVertex(String vertex) {
+        return vertexes.id(vertex);
+    }
+
+    @Override
+    public String getVertex(int index) {
+        if (index < this.size && index >= 0)
+            return vertexes.word(index);
+        else {
+            throw new IndexOutOfBoundsException(index);
+        }
+    }
+
+    @Override
+    public List<String> getNeighbors(String v) {
+        List<String> results = new ArrayList<>();
+        int from = getVertex(v);
+        if (from >= 0) {
+            for (int k = 0; k < degree[from]; k++) {
+                if (weights[from][k] > 0) results.add(vertexes.word(targets[from][k]));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public int[] getNeighbors(int v) {
+        Objects.checkIndex(v, this.size);
+        int count = 0;
+        for (int k = 0; k < degree[v]; k++) {
+            if (weights[v][k] > 0) count++;
+        }
+        int[] results = new int[count];
+        count = 0;
+        for (int k = 0; k < degree[v]; k++) {
+            if (weights[v][k] > 0) results[count++] = targets[v][k];
+        }
+        return results;
+    }
+
+    @Override
+    public int[] getPredecessors(int v) {
+        Objects.checkIndex(v, this.size);
+        int[] results = new int[inDegree[v]];
+        int count = 0;
+        for (int j = 0; j < inDegree[v]; j++) {
+            if (getEdge(sources[v][j], v) > 0) results[count++] = sources[v][j];
+        }
+        return count == results.length ? results : Arrays.copyOf(results, count);
+    }
+
+    @Override
+    public void addEdge(String a, String b, int value) throws Exception {
+        int from = getVertex(a), to = getVertex(b);
+        if (from < 0 || to < 0) throw new Exception("Vertex is not exist");
+        int k = slot(from, to); // slot 可能扩容 weights[from]，须先求值
+        weights[from][k] = value;
+    }
+
+    @Override
+    public void addEdge(String a, String b) throws Exception {
+        int from = getVertex(a), to = getVertex(b);
+        if (from < 0 || to < 0) throw new Exception("Vertex is not exist");
+        int k = slot(from, to);
+        weights[from][k]++;
+    }
+
+    @Override
+    public void addEdge(int a, int b) {
+        Objects.checkIndex(a, this.size);
+        int k = slot(a, Objects.checkIndex(b, this.size));
+        weights[a][k]++;
+    }
+
+    @Override
+    public void addEdge(int a, int b, int value) {
+        Objects.checkIndex(a, this.size);
+        int k = slot(a, Objects.checkIndex(b, this.size));
+        weights[a][k] = value;
+    }
+
+    /**
+     * 查找 from -> to 在出边数组中的下标，不存在时追加一条权重为 0 的边
+     */
+    private int slot(int from, int to) {
+        long key = LongIntHashMap.key(from, to);
+        int k = slots.get(key);
+        if (k >= 0) return k;
+        k = degree[from]++;
+        if (k == targets[from].length) {
+            targets[from] = Arrays.copyOf(targets[from], k * 2);
+            weights[from] = Arrays.copyOf(weights[from], k * 2);
+        }
+        targets[from][k] = to;
+        weights[from][k] = 0;
+        slots.put(key, k);
+        int j = inDegree[to]++;
+        if (j == sources[to].length) sources[to] = Arrays.copyOf(sources[to], j * 2);
+        sources[to][j] = from;
+        return k;
+    }
+
+    @Override
+    public int getEdge(String a, String b) {
+        int from = getVertex(a), to = getVertex(b);
+        if (from < 0 || to < 0) return -1;
+        int k = slots.get(LongIntHashMap.key(from, to));
+        return k < 0 ? 0 : weights[from][k];
+    }
+
+    @Override
+    public int getEdge(int a, int b) {
+        Objects.checkIndex(a, this.size);
+        int k = slots.get(LongIntHashMap.key(a, Objects.checkIndex(b, this.size)));
+        return k < 0 ? 0 : weights[a][k];
+    }
+
+    @Override
+    public void forEachOutEdge(int v, EdgeVisitor visitor) {
+        Objects.checkIndex(v, this.size);
+        int[] targets = this.targets[v], weights = this.weights[v];
+        for (int k = 0; k < degree[v]; k++) {
+            if (weights[k] > 0) visitor.visit(v, targets[k], weights[k]);
+        }
+    }
+
+    @Override
+    public void forEachInEdge(int v, EdgeVisitor visitor) {
+        Objects.checkIndex(v, this.size);
+        int[] sources = this.sources[v];
+        for (int j = 0; j < inDegree[v]; j++) {
+            int weight = getEdge(sources[j], v);
+            if (weight > 0) visitor.visit(sources[j], v, weight);
+        }
+    }
+
+    @Override
+    public List<Edge> getEdges() {
+        List<Edge> results = new ArrayList<>();
+        for (int i = 0; i < this.size; i++) {
+            for (int k = 0; k < degree[i]; k++) {
+                if (weights[i][k] > 0)
+                    results.add(new Edge(vertexes.word(i), vertexes.word(targets[i][k]), weights[i][k]));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public void print() {
+        System.out.println("Adjacency List:");
+        for (int i = 0; i < this.size; i++) {
+            StringJoiner joiner = new StringJoiner(", ", vertexes.word(i) + " -> [", "]");
+            for (int k = 0; k < degree[i]; k++) {
+                joiner.add(vertexes.word(targets[i][k]) + "=" + weights[i][k]);
+            }
+            System.out.println(joiner);
+        }
+    }
+}
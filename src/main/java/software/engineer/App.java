@@ -8,32 +8,27 @@ import java.util.logging.Level;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
 
-import guru.nidi.graphviz.attribute.Color;
-import guru.nidi.graphviz.engine.Format;
-import guru.nidi.graphviz.engine.Graphviz;
-import guru.nidi.graphviz.model.Factory;
-import guru.nidi.graphviz.model.Link;
-import guru.nidi.graphviz.model.LinkSource;
-import guru.nidi.graphviz.model.Node;
 import org.apache.batik.swing.JSVGCanvas;
 import org.jnativehook.GlobalScreen;
 import org.jnativehook.NativeHookException;
 import org.jnativehook.keyboard.NativeKeyEvent;
 import org.jnativehook.keyboard.NativeKeyListener;
+import org.w3c.dom.Document;
 
 import javax.swing.*;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Objects;
-import java.util.stream.Collectors;
 
-import static guru.nidi.graphviz.model.Factory.graph;
 import java.io.File;
 import java.io.IOException;
 import java.util.Map;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.function.Consumer;
+import java.util.random.RandomGenerator;
 
 /**
  * 通过命令行参数读取文件内容，并实现预处理
@@ -42,11 +37,11 @@ class InputFile
 {
     private static final String FILE_PATH = "article.txt";
     private String file_path = null;
-    private final String[] words;
+    private String[] words; // 仅在调用 getWords() 时读取
 
     public InputFile(String[] args) throws IOException {
         read_args(args);
-        this.words = read();
+        if (!Files.isReadable(Paths.get(this.file_path))) throw new FileNotFoundException(this.file_path);
     }
 
     /**
@@ -63,25 +58,37 @@ class InputFile
         if (this.file_path == null) this.file_path = FILE_PATH;
     }
 
+    /**
+     * 流式读取文件，依次将预处理后的单词交给 sink，内存占用与文件大小无关
+     * 只有 ASCII 字母构成单词，因此按 ISO-8859-1 逐字节解码即可，非 ASCII 字节均视为分隔符
+     * @param sink 单词的接收者
+     */
+    public void stream(Consumer<String> sink) throws IOException {
+        try (Reader reader = Files.newBufferedReader(Paths.get(this.file_path), StandardCharsets.ISO_8859_1)) {
+            WordTokenizer.tokenize(reader, sink);
+        }
+    }
+
     /**
      * 输入文件，预处理文件内容，返回单词列表
      * @return 单词列表
      */
     private String[] read() throws IOException {
-        StringBuilder content = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new FileReader(this.file_path))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                content.append(line).append(" ");
-            }
-        }
-        String filter_non_alphabet = content.toString().replaceAll("[^A-Za-z]", " "); // 将非字母字符替换为空格
-        return filter_non_alphabet.toLowerCase().split("\\s+");
+        return Metrics.timeIO(Metrics.Operation.TOKENIZE, () -> {
+            List<String> words = new ArrayList<>();
+            stream(words::add);
+            return words.toArray(new String[0]);
+        });
     }
 
-    public String[] getWords() {
+    public String[] getWords() throws IOException {
+        if (this.words == null) this.words = read();
         return this.words;
     }
+
+    public String getPath() {
+        return this.file_path;
+    }
 }
 
 
@@ -89,30 +96,78 @@ class InputFile
  * 图结构的接口
  * 后期可能需要用不同的数据结构实现程序：
  * -[x] 邻接矩阵的图结构（稠密图）
- * -[ ] 邻接表的图结构（稀疏图）
+ * -[x] 邻接表的图结构（稀疏图）
  */
 interface Graph {
     int size(); // 顶点数
 
     /* 顶点 */
-    void addVertex(String vertex);
+    void addVertex(String vertex); // 添加顶点（已存在时忽略）
     List<String> getVertexes(); // 顶点列表V
-    int getVertex(String vertex); // vertex -> index
+    int getVertex(String vertex); // vertex -> index，不存在时返回 -1
     String getVertex(int index); // index -> vertex
     List<String> getNeighbors(String v); // 邻居节点
+    int[] getNeighbors(int v); // 邻居节点编号
+    int[] getPredecessors(int v); // 入边的起点编号（反向邻接）
+
+    default boolean containsVertex(String vertex) {
+        return getVertex(vertex) >= 0;
+    }
 
     /* 边 */
     void addEdge(String a, String b) throws Exception; // 添加边（边权重+1）
     void addEdge(String a, String b, int value) throws Exception; // 设置边权重为 value
+    void addEdge(int a, int b); // 按顶点编号添加边（边权重+1）
+    void addEdge(int a, int b, int value); // 按顶点编号设置边权重为 value
     int getEdge(String a, String b);
+    int getEdge(int a, int b);
     List<Edge> getEdges(); // 边列表E
 
+    /* 遍历：以顶点编号与权重回调，不分配 Edge 对象或数组，适合遍历密集的算法 */
+    /**
+     * 遍历 v 的出边（权重大于 0 的边）
+     */
+    default void forEachOutEdge(int v, EdgeVisitor visitor) {
+        for (int w : getNeighbors(v)) visitor.visit(v, w, getEdge(v, w));
+    }
+
+    /**
+     * 遍历 v 的入边（权重大于 0 的边），回调参数仍为 (起点, v, 权重)
+     */
+    default void forEachInEdge(int v, EdgeVisitor visitor) {
+        for (int p : getPredecessors(v)) visitor.visit(p, v, getEdge(p, v));
+    }
+
+    /**
+     * 按起点编号顺序遍历所有边
+     */
+    default void forEachEdge(EdgeVisitor visitor) {
+        for (int v = 0; v < size(); v++) forEachOutEdge(v, visitor);
+    }
 
     /* 显示 */
     void print();
 
     /* 图算法 */
-    List<List<Object>> Dijkstra(String v); // [路径, 路径长度]
+    /**
+     * 基于二叉堆的单源最短路径
+     * @param v 源点
+     * @return 最短路径结果，源点不存在时返回 null
+     */
+    default ShortestPaths Dijkstra(String v) {
+        int source = getVertex(v);
+        return source < 0 ? null : ShortestPaths.compute(this, source);
+    }
+
+    /**
+     * 两点间最短路径（双向 Dijkstra），只计算 source 到 target 一条路径
+     * @param source 起点编号
+     * @param target 终点编号
+     * @return 最短路径
+     */
+    default Path shortestPath(int source, int target) {
+        return ShortestPaths.bidirectional(this, source, target);
+    }
 }
 
 
@@ -138,24 +193,30 @@ record Edge(String from, String to, int value) {
  * 邻接矩阵数据结构的图实现
  */
 class AdjMatrixGraph implements Graph{
-    private final List<String> vertexes;
+    private final CompactDictionary vertexes;
     private int[][] edges;
     private int size;
 
     public AdjMatrixGraph(String[] vertexes, int[][] edges) {
-        this.vertexes = new ArrayList<>(Arrays.asList(vertexes));
+        this.vertexes = new CompactDictionary(Arrays.asList(vertexes));
+        this.size = this.vertexes.size();
         this.edges = edges;
     }
     public AdjMatrixGraph(String[] vertexes) {
-        this.vertexes = new ArrayList<>(Arrays.asList(vertexes));
+        this.vertexes = new CompactDictionary(Arrays.asList(vertexes));
         this.size = this.vertexes.size();
         this.edges = new int[this.size][this.size];
     }
+    public AdjMatrixGraph(Graph other) {
+        this(other.getVertexes().toArray(new String[0]));
+        other.forEachEdge((i, j, weight) -> this.edges[i][j] = weight);
+    }
     public AdjMatrixGraph(){
-        this.vertexes = new ArrayList<>();
+        this.vertexes = new CompactDictionary();
         this.size = 0;
         this.edges = new int[0][];
     }
+
     @Override
     public int size() {
         return this.size;
@@ -163,41 +224,76 @@ class AdjMatrixGraph implements Graph{
 
     @Override
     public void addVertex(String vertex) {
-        this.vertexes.add(vertex);
-        int[][] newEdges = new int[this.size+1][this.size+1];
-        for (int i=0; i<this.size; i++){
-            System.arraycopy(this.edges[i], 0, newEdges[i], 0, this.size);
+        if (this.vertexes.id(vertex) >= 0) return;
+        this.vertexes.intern(vertex);
+        if (this.size == this.edges.length) {
+            // 按倍数扩容，避免每添加一个顶点就复制整个矩阵
+            int capacity = Math.max(4, this.size * 2);
+            int[][] newEdges = new int[capacity][capacity];
+            for (int i=0; i<this.size; i++){
+                System.arraycopy(this.edges[i], 0, newEdges[i], 0, this.size);
+            }
+            this.edges = newEdges;
         }
-        this.edges = newEdges;
         this.size++;
     }
 
     @Override
     public List<String> getVertexes() {
-        return vertexes;
+        return vertexes.words();
     }
 
     @Override
     public List<String> getNeighbors(String v) {
         List<String> results = new ArrayList<>();
-        if (vertexes.contains(v)){
-            int index = vertexes.indexOf(v);
+        int index = getVertex(v);
+        if (index >= 0){
             for (int i=0; i<this.size; i++){
-                if (this.edges[index][i] > 0) results.add(vertexes.get(i));
+                if (this.edges[index][i] > 0) results.add(vertexes.word(i));
             }
         }
         return results;
     }
 
+    @Override
+    public int[] getNeighbors(int v) {
+        Objects.checkIndex(v, this.size);
+        int count = 0;
+        for (int i=0; i<this.size; i++){
+            if (this.edges[v][i] > 0) count++;
+        }
+        int[] results = new int[count];
+        count = 0;
+        for (int i=0; i<this.size; i++){
+            if (this.edges[v][i] > 0) results[count++] = i;
+        }
+        return results;
+    }
+
+    @Override
+    public int[] getPredecessors(int v) {
+        Objects.checkIndex(v, this.size);
+        int count = 0;
+        for (int i=0; i<this.size; i++){
+            if (this.edges[i][v] > 0) count++;
+        }
+        int[] results = new int[count];
+        count = 0;
+        for (int i=0; i<this.size; i++){
+            if (this.edges[i][v] > 0) results[count++] = i;
+        }
+        return results;
+    }
+
     @Override
     public int getVertex(String vertex) {
-        return vertexes.indexOf(vertex);
+        return vertexes.id(vertex);
     }
 
     @Override
     public String getVertex(int index) {
         if (index < this.size && index >=0)
-            return vertexes.get(index);
+            return vertexes.word(index);
         else {
             throw new IndexOutOfBoundsException(index);
         }
@@ -206,9 +302,9 @@ class AdjMatrixGraph implements Graph{
 
     @Override
     public void addEdge(String a, String b, int value) throws Exception {
-        if (vertexes.contains(a) && vertexes.contains(b)){
-            int index_a = vertexes.indexOf(a);
-            int index_b = vertexes.indexOf(b);
+        int index_a = getVertex(a);
+        int index_b = getVertex(b);
+        if (index_a >= 0 && index_b >= 0){
             this.edges[index_a][index_b] = value;
         }
         else {
@@ -218,9 +314,9 @@ class AdjMatrixGraph implements Graph{
 
     @Override
     public void addEdge(String a, String b) throws Exception {
-        if (vertexes.contains(a) && vertexes.contains(b)){
-            int index_a = vertexes.indexOf(a);
-            int index_b = vertexes.indexOf(b);
+        int index_a = getVertex(a);
+        int index_b = getVertex(b);
+        if (index_a >= 0 && index_b >= 0){
             this.edges[index_a][index_b]++;
         }
         else {
@@ -228,13 +324,40 @@ class AdjMatrixGraph implements Graph{
         }
     }
 
+    @Override
+    public void addEdge(int a, int b) {
+        this.edges[Objects.checkIndex(a, this.size)][Objects.checkIndex(b, this.size)]++;
+    }
+
+    @Override
+    public void addEdge(int a, int b, int value) {
+        this.edges[Objects.checkIndex(a, this.size)][Objects.checkIndex(b, this.size)] = value;
+    }
+
+    @Override
+    public void forEachOutEdge(int v, EdgeVisitor visitor) {
+        Objects.checkIndex(v, this.size);
+        int[] row = this.edges[v];
+        for (int j=0; j<this.size; j++){
+            if (row[j] > 0) visitor.visit(v, j, row[j]);
+        }
+    }
+
+    @Override
+    public void forEachInEdge(int v, EdgeVisitor visitor) {
+        Objects.checkIndex(v, this.size);
+        for (int i=0; i<this.size; i++){
+            if (this.edges[i][v] > 0) visitor.visit(i, v, this.edges[i][v]);
+        }
+    }
+
     @Override
     public List<Edge> getEdges() {
         List<Edge> results = new ArrayList<>();
         for (int i=0; i<this.size; i++){
             for (int j=0; j<this.size; j++){
                 if (edges[i][j] > 0)
-                    results.add(new Edge(vertexes.get(i), vertexes.get(j), edges[i][j]));
+                    results.add(new Edge(vertexes.word(i), vertexes.word(j), edges[i][j]));
             }
         }
         return results;
@@ -242,9 +365,9 @@ class AdjMatrixGraph implements Graph{
 
     @Override
     public int getEdge(String a, String b) {
-        if (vertexes.contains(a) && vertexes.contains(b)) {
-            int index_a = vertexes.indexOf(a);
-            int index_b = vertexes.indexOf(b);
+        int index_a = getVertex(a);
+        int index_b = getVertex(b);
+        if (index_a >= 0 && index_b >= 0) {
             return edges[index_a][index_b];
         }
         else {
@@ -253,67 +376,17 @@ class AdjMatrixGraph implements Graph{
     }
 
     @Override
-    public void print() {
-        System.out.println("Adjacency Matrix:");
-        System.out.println(this.vertexes.toString());
-        for (int[] row : this.edges) {
-            System.out.println(Arrays.toString(row));
-        }
-    }
-
-    private int distance(int[][] dis, int i, int j){
-        if (dis[i][j] > 0) return dis[i][j];
-        else return 10000000;
+    public int getEdge(int a, int b) {
+        return edges[Objects.checkIndex(a, this.size)][Objects.checkIndex(b, this.size)];
     }
 
     @Override
-    public List<List<Object>> Dijkstra(String v) {
-        if (!this.vertexes.contains(v)) return null;
-        int start = vertexes.indexOf(v);
-        int[] visit = new int[this.size];
-        int[] bestmin = new int[this.size];
-        String[] path = new String[this.size];
-        int max = 10000000;
-        int[][] dis = new int[this.size][this.size];
-        for(int i=0; i<this.size; i++) dis[i]=Arrays.copyOf(edges[i], this.size);
-        visit[start] = 1;
-        bestmin[start] = 0;
-
-        //大循环（搞定这里就算搞定该算法了，后面的输出什么的可以不看）
-        for(int l = 0; l < this.size; l++) {
-            int Dtemp = max;
-            int k = -1;
-
-            //步骤① 找出与源点距离最短的那个点，即遍历distance[1][1]，distance[1][2],.....distance[1][N]中的最小值
-            for(int i = 0; i < this.size; i++) {
-                if(visit[i] == 0 && distance(dis, start, i) < Dtemp) {
-                    Dtemp = distance(dis, start, i);
-                    k = i;
-                }
-            }
-            if (k == -1) continue;
-            visit[k] = 1;
-            bestmin[k] = Dtemp;
-
-            //步骤② 松弛操作
-            for(int i = 0; i < this.size; i++) {
-                if(visit[i] == 0 && (distance(dis, start, k) + distance(dis, k, i)) < distance(dis, start, i)) {
-                    dis[start][i] = distance(dis, start, k) + distance(dis, k, i);
-                    path[i] = (path[k]==null?(v+"-->"+ vertexes.get(k)):path[k]) + "-->" + vertexes.get(i);
-                }
-                if (path[i] == null && (bestmin[i] > 0 || i==start)) path[i] = v+"-->"+ vertexes.get(i);
-            }
-        }
-
-        //输出路径
-        List<List<Object>> results = new ArrayList<>();
-        for(int i=0; i<this.size; i++) {
-            List<Object> t = new ArrayList<>();
-            t.add(path[i]!=null?path[i]:v+" -x "+ vertexes.get(i)+" 不可达");
-            t.add(path[i]!=null?bestmin[i]:-1);
-            results.add(t);
+    public void print() {
+        System.out.println("Adjacency Matrix:");
+        System.out.println(this.vertexes.words());
+        for (int i=0; i<this.size; i++) {
+            System.out.println(Arrays.toString(Arrays.copyOf(this.edges[i], this.size)));
         }
-        return results;
     }
 }
 
@@ -321,13 +394,49 @@ class AdjMatrixGraph implements Graph{
 public class App
 {
     private static Graph graph;
-    private static final ImageFrame imageFrame = new ImageFrame();
+    private static BridgeIndex bridgeIndex; // 图生成后一次性构建，追加文本时增量更新
+    private static GraphBuilder builder; // 首次追加文本时创建
+    private static DistanceTable distanceTable; // 可选的全源最短路径表，图改变后失效
+    private static final long CACHE_BYTES = 64L << 20;
+    private static QueryCache<WordPair, List<String>> bridgeCache;
+    private static QueryCache<WordPair, Path> pathCache;
+
+    /**
+     * 缓存的键：一对单词
+     */
+    private record WordPair(String from, String to) {
+        long bytes() {
+            return 64 + 2L * (from.length() + to.length());
+        }
+    }
+    private static int renderLimit = 300; // 渲染的顶点数上限，超过时只渲染子图
+    private static int renderHops = 1;    // 子图包含查询单词（路径）周围的跳数
+    private static Subgraph.Viewport viewport; // 复用展示过的子图，使布局缓存命中
+    private static ImageFrame imageFrame; // 首次绘图时创建，避免无界面环境下加载 App 即失败
 
     static volatile boolean isRunning=true;
 
     /**
      * 主程序入口，接收用户输入文件，生成图，并允许用户选择后续各项功能
-     * @param args -f 或者 --file 指定输入文件路径
+     * @param args -f 或者 --file 指定输入文件路径；
+     *             -t 或者 --type 指定图结构（list：邻接表，默认；matrix：邻接矩阵；concurrent：线程安全的邻接表；
+     *             offheap：保存在堆外的只读图，直接在堆外生成，加载快照时单词表也不解码到堆内，不支持追加文本）；
+     *             -p 或者 --parallel 多线程内存映射读取输入文件；
+     *             -g 或者 --graph 指定图快照文件，存在时直接加载（未指定 -t 时为只读的 CSR 图，否则转换为 -t 指定的结构），
+     *             否则生成图后写入该文件；
+     *             -w 或者 --walks 批量并行执行指定次数的随机游走后退出（-s/--seed 随机种子，
+     *             -o/--output 输出文件，-W/--weighted 按边权重采样）；
+     *             -a 或者 --apsp 指定全源最短路径文件，不存在或属于其他图时预先计算并写入，最短路径查询改为查表
+     *             （-L/--apsp-limit 表文件的大小上限，单位 MB，默认 4096，超过时不计算）；
+     *             -c 或者 --cache 桥接词与最短路径查询结果缓存的最大条目数（默认 10000，0 表示不缓存）；
+     *             -m 或者 --max-vertexes 渲染的顶点数上限（默认 300），图更大时只渲染子图；
+     *             -k 或者 --hops 渲染子图时包含查询单词（路径）周围的跳数（默认 1）；
+     *             -q 或者 --queries 从文件（- 表示标准输入）读取查询并行执行后退出，格式见 {@link QueryBatch}
+     *             （-o/--output 输出文件，默认标准输出，-s/--seed 随机种子）；
+     *             -H 或者 --http 在本机指定端口启动 HTTP 查询服务，接口见 {@link QueryServer}；
+     *             -M 或者 --metrics 退出时输出各项操作的耗时与内存分配统计（见 {@link Metrics}）；
+     *             -P 或者 --partitions 在本机启动指定数量的工作进程，按单词散列分区建图，
+     *             然后执行 -q 指定的查询（默认读取标准输入）后退出，见 {@link PartitionedGraph}
      */
     public static void main(String[] args) throws Exception {
 
@@ -336,9 +445,77 @@ public class App
         Logger logger = Logger.getLogger(GlobalScreen.class.getPackage().getName());
         logger.setLevel(Level.OFF);
 
-        InputFile inputFile = new InputFile(args);
-        String[] words = inputFile.getWords();
-        graph = buildGraph(words);
+        if (hasFlag(args, "-M", "--metrics")) {
+            Metrics.setEnabled(true);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> System.err.print(Metrics.report())));
+        }
+
+        String partitions = readOption(args, "-P", "--partitions", null);
+        if (partitions != null) {
+            runPartitioned(args, Integer.parseInt(partitions));
+            return;
+        }
+
+        String[] words;
+        String snapshot = readOption(args, "-g", "--graph", null);
+        String type = readOption(args, "-t", "--type", null);
+        if (snapshot != null && Files.exists(Paths.get(snapshot))) {
+            graph = GraphSnapshot.load(snapshot, "offheap".equals(type));
+            if (type != null) graph = convert(graph, type);
+        } else {
+            InputFile inputFile = new InputFile(args);
+            graph = buildGraph(inputFile, type == null ? "list" : type, hasFlag(args, "-p", "--parallel"));
+            if (snapshot != null) GraphSnapshot.write(graph, snapshot);
+        }
+        bridgeIndex = new BridgeIndex(graph);
+
+        int cacheEntries = Integer.parseInt(readOption(args, "-c", "--cache", "10000"));
+        bridgeCache = new QueryCache<>("bridge", cacheEntries, CACHE_BYTES, (k, v) -> k.bytes() + 16 + 8L * v.size());
+        pathCache = new QueryCache<>("path", cacheEntries, CACHE_BYTES, (k, v) -> k.bytes() + 32 + 4L * v.vertexes().length);
+
+        renderLimit = Integer.parseInt(readOption(args, "-m", "--max-vertexes", Integer.toString(renderLimit)));
+        renderHops = Integer.parseInt(readOption(args, "-k", "--hops", Integer.toString(renderHops)));
+        viewport = new Subgraph.Viewport(renderLimit, renderHops);
+
+        String apsp = readOption(args, "-a", "--apsp", null);
+        if (apsp != null) {
+            long limit = Long.parseLong(readOption(args, "-L", "--apsp-limit", "4096")) << 20;
+            distanceTable = openDistanceTable(apsp, limit);
+        }
+
+        String walks = readOption(args, "-w", "--walks", null);
+        if (walks != null) {
+            long seed = Long.parseLong(readOption(args, "-s", "--seed", Long.toString(System.nanoTime())));
+            String output = readOption(args, "-o", "--output", "random_walk.txt");
+            RandomWalker walker = new RandomWalker(graph, hasFlag(args, "-W", "--weighted"));
+            try (Writer out = Files.newBufferedWriter(Paths.get(output))) {
+                System.out.println(new WalkBatch(walker).run(Long.parseLong(walks), seed, out));
+            }
+            return;
+        }
+        String port = readOption(args, "-H", "--http", null);
+        if (port != null) {
+            QueryServer server = new QueryServer(graph, distanceTable, Integer.parseInt(port),
+                    Runtime.getRuntime().availableProcessors());
+            server.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+            System.out.println("Listening on http://127.0.0.1:" + server.getPort());
+            return; // 服务线程在后台运行直到进程被终止
+        }
+        String queries = readOption(args, "-q", "--queries", null);
+        if (queries != null) {
+            long seed = Long.parseLong(readOption(args, "-s", "--seed", Long.toString(System.nanoTime())));
+            String output = readOption(args, "-o", "--output", null);
+            Reader in = queries.equals("-") ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                    : Files.newBufferedReader(Paths.get(queries), StandardCharsets.UTF_8);
+            Writer out = output == null ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                    : Files.newBufferedWriter(Paths.get(output), StandardCharsets.UTF_8);
+            try (in; out) {
+                QueryBatch.Result result = new QueryBatch(graph, bridgeIndex, distanceTable).run(in, seed, out);
+                System.err.println(result);
+            }
+            return;
+        }
         Scanner scanner = new Scanner(System.in);
         String input;
         boolean flag = true;
@@ -350,6 +527,7 @@ public class App
             System.out.println("3. 根据桥接词生成新文本");
             System.out.println("4. 计算两个单词之间的最短路径");
             System.out.println("5. 随机游走");
+            System.out.println("6. 追加文本文件");
             System.out.println("0. 退出");
 
             int choice;
@@ -360,7 +538,12 @@ public class App
             choice=scanner.nextInt();
             scanner.nextLine();
             switch (choice) {
-                case 1 -> showDirectedGraph(graph);
+                case 1 -> {
+                    System.out.println("请输入中心单词，只展示其周围 " + renderHops + " 跳以内的子图（直接回车展示整个图）: ");
+                    input = scanner.nextLine().trim();
+                    if (input.isEmpty()) showDirectedGraph(graph);
+                    else showNeighborhood(input.split("\\s+"));
+                }
                 case 2 -> {
                     System.out.println("请输入两个单词(" + graph.getVertexes().toString() + "): ");
                     input = scanner.nextLine();
@@ -395,7 +578,17 @@ public class App
                     out.print(randomwalk);
                     out.close();
                 }
-                case 0 -> flag = false;
+                case 6 -> {
+                    System.out.println("请输入文件路径");
+                    input = scanner.nextLine().trim();
+                    int vertexes = graph.size();
+                    if (appendText(input)) System.out.println("新增 " + (graph.size() - vertexes) + " 个单词，共 " + graph.size() + " 个");
+                }
+                case 0 -> {
+                    System.out.println(bridgeCache);
+                    System.out.println(pathCache);
+                    flag = false;
+                }
                 default -> System.out.println("无效选择，请重新输入");
             }
         }
@@ -403,19 +596,184 @@ public class App
         System.exit(0);
     }
 
-    private static Graph buildGraph(String[] words) throws Exception {
-        Set<String> set = new HashSet<>(Arrays.asList(words));
-        Graph graph = new AdjMatrixGraph(set.toArray(new String[0]));
-        String previousWord = null;
+    /**
+     * 打开全源最短路径表：文件不存在或属于其他图（如旧的语料）时重新计算，
+     * 表的大小（8·V² 字节）超过 limit 时不计算，最短路径查询照常在图上计算
+     * @return 最短路径表，不可用时为 null
+     */
+    private static DistanceTable openDistanceTable(String file, long limit) throws IOException {
+        if (!DistanceTable.matches(file, graph)) {
+            long bytes = DistanceTable.fileBytes(graph.size());
+            if (bytes > limit) {
+                System.err.println("全源最短路径表需要 " + (bytes >> 20) + " MB（" + graph.size() + " 个顶点），超过上限 "
+                        + (limit >> 20) + " MB，不使用 " + file + "（-L/--apsp-limit 调整上限）");
+                return null;
+            }
+            if (Files.exists(Paths.get(file))) System.err.println(file + " 不是当前图的全源最短路径表，重新计算");
+            DistanceTable.compute(graph, file);
+        }
+        return DistanceTable.load(file, graph);
+    }
+
+    private static ImageFrame imageFrame() {
+        if (imageFrame == null) imageFrame = new ImageFrame();
+        return imageFrame;
+    }
+
+    /**
+     * 分区模式：启动工作进程、建图，然后并行执行批量查询
+     * 支持的查询为 bridge、path word1 word2 与 walk word（见 {@link PartitionedGraph#execute}）
+     * @param partitions 工作进程数
+     */
+    private static void runPartitioned(String[] args, int partitions) throws IOException {
+        InputFile inputFile = new InputFile(args);
+        try (PartitionedGraph partitioned = PartitionedGraph.launch(partitions)) {
+            partitioned.load(inputFile.getPath());
+            System.err.println("Loaded " + partitioned.size() + " vertexes and " + partitioned.edgeCount()
+                    + " edges into " + partitions + " partitions");
+            String queries = readOption(args, "-q", "--queries", "-");
+            long seed = Long.parseLong(readOption(args, "-s", "--seed", Long.toString(System.nanoTime())));
+            String output = readOption(args, "-o", "--output", null);
+            Reader in = queries.equals("-") ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                    : Files.newBufferedReader(Paths.get(queries), StandardCharsets.UTF_8);
+            Writer out = output == null ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                    : Files.newBufferedWriter(Paths.get(output), StandardCharsets.UTF_8);
+            boolean weighted = hasFlag(args, "-W", "--weighted");
+            try (in; out) {
+                System.err.println(new QueryBatch((query, random) -> partitioned.execute(query, weighted, random)).run(in, seed, out));
+            }
+        }
+    }
+
+    /**
+     * 读取命令行参数中的指定选项
+     * @param args 参数列表
+     * @param shortName 短选项名，如 -t
+     * @param longName 长选项名，如 --type
+     * @param defaultValue 未指定时的默认值
+     * @return 选项值
+     */
+    static String readOption(String[] args, String shortName, String longName, String defaultValue) {
+        for (int i = 0; i < args.length; i++) {
+            if ((shortName.equals(args[i]) || longName.equals(args[i])) && i + 1 < args.length) {
+                return args[i + 1];
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * 判断命令行参数中是否包含指定开关
+     * @param args 参数列表
+     * @param shortName 短选项名，如 -p
+     * @param longName 长选项名，如 --parallel
+     */
+    static boolean hasFlag(String[] args, String shortName, String longName) {
+        for (String arg : args) {
+            if (shortName.equals(arg) || longName.equals(arg)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 读取输入文件并生成有向图，不在内存中保留单词序列
+     * @param inputFile 输入文件
+     * @param type 图结构：list 为邻接表（稀疏图），matrix 为邻接矩阵（稠密图），concurrent 为线程安全的邻接表，
+     *             offheap 为堆外的只读图（直接在堆外生成，不经过堆内的邻接表）
+     * @param parallel 是否分块并行读取（内存映射 + ForkJoinPool），否则单线程流式读取；offheap 总是单线程读取
+     * @return 有向图
+     */
+    static Graph buildGraph(InputFile inputFile, String type, boolean parallel) throws IOException {
+        return Metrics.timeIO(Metrics.Operation.BUILD, () -> {
+            if ("offheap".equals(type)) return OffHeapGraph.build(inputFile.getPath());
+            Graph list;
+            if (parallel) {
+                list = new ParallelGraphLoader().load(inputFile.getPath());
+            } else {
+                GraphBuilder builder = new GraphBuilder(new AdjListGraph());
+                builder.append(inputFile.getPath());
+                list = builder.getGraph();
+            }
+            return convert(list, type);
+        });
+    }
+
+    /**
+     * 将图转换为指定的结构（已经是该结构时直接返回）
+     * @param type 图结构，同 {@link #buildGraph(InputFile, String, boolean)}
+     */
+    static Graph convert(Graph graph, String type) {
+        return switch (type) {
+            case "list" -> graph instanceof AdjListGraph ? graph : new AdjListGraph(graph);
+            case "matrix" -> new AdjMatrixGraph(graph); // 词表确定后一次性分配矩阵
+            case "concurrent" -> new ConcurrentGraph(graph);
+            case "offheap" -> graph instanceof OffHeapGraph ? graph : OffHeapGraph.copyOf(graph);
+            default -> throw new IllegalArgumentException("Unknown graph type: " + type);
+        };
+    }
+
+    /**
+     * 根据单词序列生成有向图
+     * @param words 单词列表
+     * @param type 图结构：list 为邻接表（稀疏图），matrix 为邻接矩阵（稠密图），concurrent 为线程安全的邻接表，
+     *             offheap 为堆外的只读图
+     * @return 有向图
+     */
+    static Graph buildGraph(String[] words, String type) throws Exception {
+        if ("offheap".equals(type)) return OffHeapGraph.copyOf(buildGraph(words, "list"));
+        Set<String> set = new LinkedHashSet<>(Arrays.asList(words));
+        String[] vertexes = set.toArray(new String[0]);
+        Graph graph = switch (type) {
+            case "list" -> new AdjListGraph(vertexes);
+            case "matrix" -> new AdjMatrixGraph(vertexes);
+            case "concurrent" -> new ConcurrentGraph(vertexes);
+            default -> throw new IllegalArgumentException("Unknown graph type: " + type);
+        };
+        int previous = -1;
         for (String word : words) {
-            if (previousWord != null) {
-                graph.addEdge(previousWord, word);
+            int current = graph.getVertex(word);
+            if (previous >= 0) {
+                graph.addEdge(previous, current);
             }
-            previousWord = word;
+            previous = current;
         }
         return graph;
     }
 
+    /**
+     * 将新的文本文件追加到已生成的图中，顶点、边权重与桥接词索引原地更新
+     * 从快照加载的只读图在第一次追加时复制为邻接表；堆外的图（-t offheap）不支持追加
+     * @param file 文件路径
+     * @return 是否已追加
+     */
+    private static boolean appendText(String file) throws IOException {
+        if (graph instanceof OffHeapGraph) {
+            System.out.println("堆外的只读图不支持追加文本，请不使用 -t offheap 重新生成图");
+            return false;
+        }
+        if (builder == null) {
+            if (graph instanceof CsrGraph) {
+                graph = new AdjListGraph(graph);
+                bridgeIndex = new BridgeIndex(graph);
+            }
+            builder = new GraphBuilder(graph);
+            builder.addListener(bridgeIndex);
+        }
+        distanceTable = null; // 预先计算的最短路径不再有效
+        viewport.graphChanged();
+        if (imageFrame != null) {
+            imageFrame.discardPending(); // 后台渲染可能正在读取图
+            imageFrame.getRenderer().graphChanged(graph);
+        }
+        try {
+            builder.append(file);
+        } finally {
+            bridgeCache.invalidate(); // 每次追加清空一次，不在每个单词上加锁
+            pathCache.invalidate();
+        }
+        return true;
+    }
+
     /**
      * 展示生成的有向图
      * ✅ 可选功能：将生成的有向图以图形文件形式保存到磁盘，可以调用外部
@@ -424,14 +782,42 @@ public class App
      * @param path 突出标注路径
      * @param filename 保存文件名
      */
-    private static void showDirectedGraph(Graph g, List<Edge> path, String filename) throws IOException {
-        imageFrame.draw(g, path, filename);
+    private static void showDirectedGraph(Graph g, List<Edge> path, String filename) {
+        imageFrame().draw(g, path, filename);
     }
 
-    private static void showDirectedGraph(Graph g) throws IOException {
+    /**
+     * 图的顶点数超过渲染上限时只展示权重最大的边
+     */
+    private static void showDirectedGraph(Graph g) {
+        if (g.size() > renderLimit) {
+            System.out.println("图中共有 " + g.size() + " 个单词，只展示权重最大的 " + renderLimit / 2 + " 条边");
+            g = viewport.overview(g);
+        }
         showDirectedGraph(g, new ArrayList<>(), "graph.svg");
     }
 
+    /**
+     * 只展示指定单词周围 renderHops 跳以内的子图
+     * @param words 中心单词
+     */
+    private static void showNeighborhood(String[] words) {
+        int[] seeds = new int[words.length];
+        for (int i = 0; i < words.length; i++) {
+            seeds[i] = graph.getVertex(words[i]);
+            if (seeds[i] < 0) System.out.println("\"" + words[i] + "\" is not exist");
+        }
+        showDirectedGraph(Subgraph.neighborhood(graph, seeds, renderHops, renderLimit), new ArrayList<>(), "graph.svg");
+    }
+
+    /**
+     * 展示突出标注的路径：图的顶点数超过渲染上限时只展示路径周围的子图
+     * @param vertexes 路径上的顶点编号
+     */
+    private static void showPath(int[] vertexes, List<Edge> path, String filename) {
+        showDirectedGraph(viewport.path(graph, vertexes), path, filename);
+    }
+
     /**
      * 在生成有向图之后，用户输入任意两个英文单词word1、word2，程
      * 序从图中查询它们的“桥接词”。
@@ -442,33 +828,35 @@ public class App
      */
     private static List<String> queryBridgeWords(String word1, String word2, boolean message){
         List<String> results = new ArrayList<>();
-        if (graph.getVertexes().contains(word1) && graph.getVertexes().contains(word2)){
-            List<String> pos = graph.getNeighbors(word1);
-            for (String p : pos){
-                if (graph.getNeighbors(p).contains(word2))
-                    results.add(p);
-            }
+        if (graph.containsVertex(word1) && graph.containsVertex(word2)){
+            results = Metrics.time(Metrics.Operation.BRIDGE,
+                    () -> bridgeCache.get(new WordPair(word1, word2), k -> List.copyOf(bridgeIndex.bridges(k.from(), k.to()))));
         }
         else if(message){
             System.out.println("No \"" + word1 + "\" or \"" + word2 + "\" in the graph!");
         }
 
         // 输出提示词
-        if (message){
-            if (results.size() == 0){
-                System.out.println("No bridge words from \"" + word1 + "\" to \"" + word2 + "\"!");
-            } else if (results.size() == 1) {
-                System.out.println("The bridge word from \"" + word1 + "\" to \"" + word2 + "\" is: "+results.get(0));
-            } else {
-                StringJoiner joiner = new StringJoiner(", ", "The bridge words from \"" + word1 + "\" to \"" + word2 + "\" are: ", ".");
-                for (int i = 0; i < results.size(); i++) {
-                    if (i == results.size() - 1) joiner.add("and " + results.get(i));
-                    else joiner.add(results.get(i));
-                }
-                System.out.println(joiner);
+        if (message) System.out.println(formatBridgeWords(word1, word2, results));
+        return results;
+    }
+
+    /**
+     * 桥接词查询结果的提示信息
+     */
+    static String formatBridgeWords(String word1, String word2, List<String> results) {
+        if (results.size() == 0){
+            return "No bridge words from \"" + word1 + "\" to \"" + word2 + "\"!";
+        } else if (results.size() == 1) {
+            return "The bridge word from \"" + word1 + "\" to \"" + word2 + "\" is: "+results.get(0);
+        } else {
+            StringJoiner joiner = new StringJoiner(", ", "The bridge words from \"" + word1 + "\" to \"" + word2 + "\" are: ", ".");
+            for (int i = 0; i < results.size(); i++) {
+                if (i == results.size() - 1) joiner.add("and " + results.get(i));
+                else joiner.add(results.get(i));
             }
+            return joiner.toString();
         }
-        return results;
     }
 
     private static List<String> queryBridgeWords(String word1, String word2) {
@@ -488,24 +876,29 @@ public class App
      * @return 新生成的字符串
      */
     private static String generateNewText(String inputText) {
-        String filter_non_alphabet = inputText.replaceAll("[^A-Za-z]", " "); // 将非字母字符替换为空格
-        String[] words = filter_non_alphabet.split("\\s+"); // 分割处理后的文本
-        String preword = null;
-        StringBuilder result = new StringBuilder();
-        for (String word : words){
-            if (preword != null){
-                List<String> bridges = queryBridgeWords(preword, word.toLowerCase());
-                if (bridges.size() == 1) result.append(bridges.get(0)).append(" ");
-                else if (bridges.size() > 1) {
-                    Random random = new Random();
-                    int randomIndex = random.nextInt(bridges.size());
-                    result.append(bridges.get(randomIndex)).append(" ");
+        return generateNewText(bridgeIndex, inputText, new Random());
+    }
+
+    static String generateNewText(BridgeIndex index, String inputText, RandomGenerator random) {
+        return Metrics.time(Metrics.Operation.TEXT, () -> {
+            String filter_non_alphabet = inputText.replaceAll("[^A-Za-z]", " "); // 将非字母字符替换为空格
+            String[] words = filter_non_alphabet.split("\\s+"); // 分割处理后的文本
+            String preword = null;
+            StringBuilder result = new StringBuilder();
+            for (String word : words){
+                if (preword != null){
+                    List<String> bridges = index.bridges(preword, word.toLowerCase());
+                    if (bridges.size() == 1) result.append(bridges.get(0)).append(" ");
+                    else if (bridges.size() > 1) {
+                        int randomIndex = random.nextInt(bridges.size());
+                        result.append(bridges.get(randomIndex)).append(" ");
+                    }
                 }
+                result.append(word).append(" ");
+                preword = word.toLowerCase();
             }
-            result.append(word).append(" ");
-            preword = word.toLowerCase();
-        }
-        return result.toString();
+            return result.toString();
+        });
     }
 
     /**
@@ -522,30 +915,34 @@ public class App
      * @param word2 单词2
      * @return 最短路径的字符串
      */
-    private static String calcShortestPath(String word1, String word2) throws IOException {
-        List<List<Object>> paths = graph.Dijkstra(word1);
-        if (paths == null) return "\"" + word1 + "\" is not exist";
-        if (!graph.getVertexes().contains(word2)) return "\"" + word2 + "\" is not exist";
-        List<Object> res = paths.get(graph.getVertex(word2));
+    private static String calcShortestPath(String word1, String word2) {
+        int source = graph.getVertex(word1);
+        if (source < 0) return "\"" + word1 + "\" is not exist";
+        int target = graph.getVertex(word2);
+        if (target < 0) return "\"" + word2 + "\" is not exist";
+        Path path = distanceTable != null ? distanceTable.path(source, target)
+                : pathCache.get(new WordPair(word1, word2), k -> graph.shortestPath(source, target));
 
         // 突出显示路径
-        List<Edge> path = new ArrayList<>();
-        String[] nodes = ((String) res.get(0)).split("-->");
-        String preword = null;
-        for (String node : nodes){
-            if (preword != null) path.add(new Edge(preword, node, graph.getEdge(preword, node)));
-            preword = node;
-        }
-        showDirectedGraph(graph, path, "graph_path.svg");
-        return ("(" + res.get(1) + "): " + res.get(0));
+        showPath(path.vertexes(), path.edges(graph), "graph_path.svg");
+        return path.format(graph, source, target);
     }
 
     private static String calcShortestPath(String word1) {
-        List<List<Object>> paths = graph.Dijkstra(word1);
+        if (distanceTable != null) {
+            int source = graph.getVertex(word1);
+            if (source < 0) return "\"" + word1 + "\" is not exist";
+            StringBuilder res = new StringBuilder();
+            for (int i = 0; i < graph.size(); i++){
+                res.append(distanceTable.path(source, i).format(graph, source, i)).append("\n");
+            }
+            return res.toString();
+        }
+        ShortestPaths paths = graph.Dijkstra(word1);
         if (paths == null) return "\"" + word1 + "\" is not exist";
         StringBuilder res = new StringBuilder();
-        for (List<Object> path : paths){
-            res.append("(").append(path.get(1)).append("): ").append(path.get(0)).append("\n");
+        for (int i = 0; i < paths.size(); i++){
+            res.append(paths.format(graph, i)).append("\n");
         }
         return res.toString();
     }
@@ -561,16 +958,10 @@ public class App
      * @return 随机路径的字符串
      */
     private static String randomWalk() throws IOException, InterruptedException, NativeHookException {
-        boolean[] visited = new boolean[graph.size()];
         // 随机起点
         Random random = new Random();
-        int randomIndex = random.nextInt(graph.size());
-        String v = graph.getVertex(randomIndex);
-
-        StringBuilder path = new StringBuilder(v);
+        RandomWalker.Walk walk = new RandomWalker(graph, false).start(random.nextInt(graph.size()), random);
         List<Edge> paths = new ArrayList<>();
-        visited[randomIndex] = true;
-        List<String> neighbors;
 
         try {
             GlobalScreen.registerNativeHook();
@@ -592,42 +983,71 @@ public class App
             public void nativeKeyTyped(NativeKeyEvent e) { }
         });
 
-        while ((neighbors = graph.getNeighbors(v)) != null) {
+        while (!walk.isStopped()) {
             Thread.sleep(2000);
             if (isRunning) {
-                // 随机选择邻居
-                randomIndex = random.nextInt(graph.size());
-                while (!neighbors.contains(graph.getVertex(randomIndex))) randomIndex = random.nextInt(graph.size());
+                int v = walk.current();
+                int next = walk.step();
+                if (next < 0) break; // 没有出边
 
-                path.append("-->").append(graph.getVertex(randomIndex));
-                paths.add(new Edge(v, graph.getVertex(randomIndex), graph.getEdge(v, graph.getVertex(randomIndex))));
-
-                imageFrame.draw(graph, paths, "random_walk.svg");
-                System.out.println(path);
-
-                if (visited[randomIndex]) break;
-                else visited[randomIndex] = true;
-                v = graph.getVertex(randomIndex);
+                paths.add(new Edge(graph.getVertex(v), graph.getVertex(next), graph.getEdge(v, next)));
+                showPath(walk.vertexes(), paths, "random_walk.svg");
+                System.out.println(walk.format());
             }
             else {
+                walk.cancel();
                 System.out.println("User interrupt.");
-                break;
             }
         }
 
         GlobalScreen.unregisterNativeHook();
-        return path.toString();
+        return walk.format();
     }
 }
 
 
 /**
  * GUI窗口，用于展示有向图
- * 利用 Graphviz 生成图片并保存，读取图片展示在界面上
+ * 利用 Graphviz 生成图片并保存，读取图片展示在界面上（生成图片见 {@link GraphRenderer}）
+ * *********************
+ * 渲染在后台线程中进行，draw 立即返回；渲染期间提交的多个请求只保留最新的一个，
+ * 过期的路径或游走帧不会被绘制
+ * *********************
  */
 class ImageFrame extends JFrame {
+    private record Request(Graph graph, List<Edge> path, String filename) {
+    }
+
+    private final GraphRenderer renderer = new GraphRenderer();
+    private final CoalescingExecutor<Request> renders = new CoalescingExecutor<>("graph-render", this::render); // 只渲染最新的请求
+
+    /**
+     * 提交绘图请求，立即返回
+     * @param graph 有向图（渲染完成前不能修改，见 {@link #discardPending()}）
+     * @param path 突出标注路径
+     * @param filename 保存文件名
+     */
+    public void draw(Graph graph, List<Edge> path, String filename) {
+        renders.submit(new Request(graph, List.copyOf(path), filename));
+    }
 
-    public void draw(Graph graph, List<Edge> path, String filename) throws IOException {
+    /**
+     * 丢弃尚未开始的请求并等待正在进行的渲染结束（修改图之前调用）
+     */
+    public void discardPending() {
+        renders.discardPending();
+    }
+
+    private void render(Request request) {
+        try {
+            Document document = renderer.render(request.graph(), request.path(), request.filename());
+            SwingUtilities.invokeLater(() -> show(document));
+        } catch (IOException | RuntimeException e) {
+            System.err.println("绘图失败: " + e.getMessage());
+        }
+    }
+
+    private void show(Document document) {
         setTitle("Graph Display");
 
         // 移除所有组件
@@ -636,11 +1056,9 @@ class ImageFrame extends JFrame {
         contentPane.repaint();
         contentPane.revalidate();
 
-        generateImage(graph, path, filename);
-
         // 使用Batik创建SVG画布
         JSVGCanvas canvas = new JSVGCanvas();
-        canvas.setURI(filename);
+        canvas.setDocument(document);
 
         // 创建一个标签并设置画布
         JScrollPane scrollPane = new JScrollPane(canvas);
@@ -655,22 +1073,7 @@ class ImageFrame extends JFrame {
         setVisible(true);
     }
 
-    public void generateImage(Graph graph, List<Edge> path, String filename) throws IOException {
-        List<String> vertexes = graph.getVertexes();
-        List<Edge> edges = graph.getEdges();
-        Map<String, Node> nodes = vertexes.stream().collect(Collectors.toMap(vertex -> vertex, Factory::node, (a, b) -> b));
-        LinkSource[] linkSources = new LinkSource[edges.size()];
-        int index = 0;
-        for (Edge edge:edges){
-            linkSources[index++] = nodes.get(edge.from())
-                    .link(
-                            Link.to(nodes.get(edge.to()))
-                                    .with(guru.nidi.graphviz.attribute.Label.of(Integer.toString(edge.value())), path.contains(edge)? guru.nidi.graphviz.attribute.Color.RED: Color.BLACK)
-                    );
-        }
-        guru.nidi.graphviz.model.Graph g = graph("text").directed()
-                .linkAttr().with("class", "link-class")
-                .with(linkSources);
-        Graphviz.fromGraph(g).render(Format.SVG).toFile(new File(filename));
-    }
-}
\ No newline at end of file
+    public GraphRenderer getRenderer() {
+        return renderer;
+    }
+}
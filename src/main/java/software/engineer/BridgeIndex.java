@@ -0,0 +1,138 @@
+package software.engineer;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 桥接词索引
+ * 在图生成后一次性保存每个顶点的出邻居与入邻居编号，
+ * 查询 a -> ? -> c 的桥接词时遍历 out(a) 与 in(c) 中较短的一侧，
+ * 再用图的边查询确认另一条边是否存在，复杂度 O(min(outdeg, indeg))
+ * 实现 {@link GraphListener}，注册到 {@link GraphBuilder} 后随图的增量更新同步更新
+ * 图为只读的 {@link CsrGraph}（包括堆外的 {@link OffHeapGraph}）时不复制邻居，直接读取图的 CSR 数组
+ */
+class BridgeIndex implements GraphListener {
+    private static final int[] EMPTY = new int[0];
+
+    private final Graph graph;
+    private int[][] out;      // out[v]: v 的出邻居
+    private int[] outDegree;
+    private int[][] in;       // in[v]: v 的入邻居
+    private int[] inDegree;
+    private final IntBuffer offsets, targets, inOffsets, sources; // 图为 CsrGraph 时使用，否则为 null
+
+    public BridgeIndex(Graph graph) {
+        this.graph = graph;
+        if (graph instanceof CsrGraph csr) {
+            this.offsets = csr.offsets();
+            this.targets = csr.targets();
+            this.inOffsets = csr.inOffsets();
+            this.sources = csr.sources();
+            return;
+        }
+        this.offsets = this.targets = this.inOffsets = this.sources = null;
+        int n = graph.size();
+        this.out = new int[Math.max(n, 1)][];
+        this.in = new int[Math.max(n, 1)][];
+        this.outDegree = new int[out.length];
+        this.inDegree = new int[in.length];
+        for (int v = 0; v < n; v++) {
+            out[v] = graph.getNeighbors(v);
+            outDegree[v] = out[v].length;
+            in[v] = graph.getPredecessors(v);
+            inDegree[v] = in[v].length;
+        }
+    }
+
+    @Override
+    public void vertexAdded(int v) {
+        if (offsets != null) throw new UnsupportedOperationException("CsrGraph is read-only");
+        if (v >= out.length) {
+            int capacity = Math.max(v + 1, out.length * 2);
+            out = Arrays.copyOf(out, capacity);
+            in = Arrays.copyOf(in, capacity);
+            outDegree = Arrays.copyOf(outDegree, capacity);
+            inDegree = Arrays.copyOf(inDegree, capacity);
+        }
+        out[v] = EMPTY;
+        in[v] = EMPTY;
+    }
+
+    @Override
+    public void edgeAdded(int a, int b, int weight) {
+        if (offsets != null) throw new UnsupportedOperationException("CsrGraph is read-only");
+        if (weight != 1) return; // 只有新出现的边需要加入邻接表
+        out[a] = append(out[a], outDegree[a]++, b);
+        in[b] = append(in[b], inDegree[b]++, a);
+    }
+
+    private static int[] append(int[] array, int length, int value) {
+        if (length == array.length) array = Arrays.copyOf(array, Math.max(4, length * 2));
+        array[length] = value;
+        return array;
+    }
+
+    /**
+     * @return 从 a 到 c 的桥接词编号（升序）
+     */
+    public int[] bridges(int a, int c) {
+        if (offsets != null) return csrBridges(a, c);
+        if (a >= out.length || c >= in.length || out[a] == null || in[c] == null) return EMPTY;
+        int[] results;
+        int count = 0;
+        if (outDegree[a] <= inDegree[c]) {
+            results = new int[outDegree[a]];
+            for (int i = 0; i < outDegree[a]; i++) {
+                int b = out[a][i];
+                if (graph.getEdge(b, c) > 0) results[count++] = b;
+            }
+        } else {
+            results = new int[inDegree[c]];
+            for (int i = 0; i < inDegree[c]; i++) {
+                int b = in[c][i];
+                if (graph.getEdge(a, b) > 0) results[count++] = b;
+            }
+        }
+        results = Arrays.copyOf(results, count);
+        Arrays.sort(results);
+        return results;
+    }
+
+    /**
+     * CSR 的每行升序排列，结果无需排序
+     */
+    private int[] csrBridges(int a, int c) {
+        if (a < 0 || c < 0 || a >= graph.size() || c >= graph.size()) return EMPTY;
+        int outStart = offsets.get(a), outEnd = offsets.get(a + 1);
+        int inStart = inOffsets.get(c), inEnd = inOffsets.get(c + 1);
+        int[] results;
+        int count = 0;
+        if (outEnd - outStart <= inEnd - inStart) {
+            results = new int[outEnd - outStart];
+            for (int k = outStart; k < outEnd; k++) {
+                int b = targets.get(k);
+                if (graph.getEdge(b, c) > 0) results[count++] = b;
+            }
+        } else {
+            results = new int[inEnd - inStart];
+            for (int k = inStart; k < inEnd; k++) {
+                int b = sources.get(k);
+                if (graph.getEdge(a, b) > 0) results[count++] = b;
+            }
+        }
+        return Arrays.copyOf(results, count);
+    }
+
+    /**
+     * @return 从 word1 到 word2 的桥接词，任一单词不在图中时返回空列表
+     */
+    public List<String> bridges(String word1, String word2) {
+        int a = graph.getVertex(word1), c = graph.getVertex(word2);
+        List<String> results = new ArrayList<>();
+        if (a < 0 || c < 0) return results;
+        for (int b : bridges(a, c)) results.add(graph.getVertex(b));
+        return results;
+    }
+}
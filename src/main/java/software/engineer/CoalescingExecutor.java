@@ -0,0 +1,82 @@
+package software.engineer;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * 只执行最新请求的单线程执行器
+ * 正在执行时提交的请求只保留最新的一个，执行结束后处理它，中间被覆盖的请求直接丢弃；
+ * 用于绘图等耗时且只需要最新结果的任务（见 {@link ImageFrame}）
+ * *********************
+ * submit 立即返回，handler 在名为 name 的守护线程中执行，抛出的 RuntimeException 输出到标准错误后继续
+ * 所有方法线程安全
+ * *********************
+ */
+class CoalescingExecutor<T> {
+    private final String name;
+    private final Consumer<? super T> handler;
+    private final ExecutorService executor;
+    private final AtomicReference<T> pending = new AtomicReference<>(); // 最新的尚未开始的请求
+
+    CoalescingExecutor(String name, Consumer<? super T> handler) {
+        this.name = name;
+        this.handler = handler;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 提交请求，覆盖尚未开始的请求
+     */
+    public void submit(T request) {
+        if (pending.getAndSet(request) == null) {
+            executor.execute(this::drain);
+        }
+    }
+
+    /**
+     * @return 是否有尚未开始的请求
+     */
+    boolean hasPending() {
+        return pending.get() != null;
+    }
+
+    /**
+     * 丢弃尚未开始的请求并等待正在进行的请求结束
+     * 不能在执行 handler 的线程中调用
+     */
+    public void discardPending() {
+        pending.set(null);
+        awaitIdle();
+    }
+
+    /**
+     * 等待已提交的请求（包括尚未开始的）全部结束
+     */
+    public void awaitIdle() {
+        try {
+            executor.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void drain() {
+        T request;
+        while ((request = pending.getAndSet(null)) != null) {
+            try {
+                handler.accept(request);
+            } catch (RuntimeException e) {
+                System.err.println(name + " 失败: " + e);
+            }
+        }
+    }
+}
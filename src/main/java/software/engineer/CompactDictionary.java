@@ -0,0 +1,151 @@
+package software.engineer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 紧凑的堆内单词表，可追加
+ * 所有单词的 UTF-8 字节首尾相接保存在一个 byte 数组中，单词 i 为 bytes[offsets[i], offsets[i+1])；
+ * 查找使用开放定址（线性探测）的散列表 slots，槽中保存单词编号 + 1（0 表示空槽）
+ * 每个单词只占自身的字节数加约 12 字节的编号与槽位，而 HashMap + String + Integer 每个单词要一百字节左右；
+ * {@link #intern(byte[], int, int)} 直接按字节查找，分词时不必为每次出现的单词创建 String
+ * *********************
+ * 与 {@link OffHeapDictionary} 使用相同的散列函数（FNV-1a）
+ * 非线程安全
+ * *********************
+ */
+class CompactDictionary implements WordDictionary {
+    private byte[] bytes;
+    private int[] offsets; // offsets[i]: 单词 i 的起点，offsets[size] 为已用字节数
+    private int[] slots;
+    private int mask;
+    private int size;
+
+    public CompactDictionary() {
+        this(16);
+    }
+
+    public CompactDictionary(int capacity) {
+        capacity = Math.max(capacity, 1);
+        this.bytes = new byte[capacity * 8];
+        this.offsets = new int[capacity + 1];
+        this.slots = new int[Integer.highestOneBit(Math.max(2, capacity * 2 - 1)) << 1]; // 装载因子不超过 0.5
+        this.mask = slots.length - 1;
+    }
+
+    public CompactDictionary(List<String> words) {
+        this(words.size());
+        for (String word : words) intern(word);
+    }
+
+    static int hash(byte[] word, int start, int length) {
+        int h = 0x811C9DC5;
+        for (int i = start; i < start + length; i++) h = (h ^ (word[i] & 0xFF)) * 0x01000193;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return ASCII 单词的散列值（与按 UTF-8 字节计算的相同），含非 ASCII 字符时返回 -1
+     */
+    private static long asciiHash(String word) {
+        int h = 0x811C9DC5;
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c >= 0x80) return -1L;
+            h = (h ^ c) * 0x01000193;
+        }
+        return (h ^ (h >>> 16)) & 0xFFFFFFFFL;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int id(String word) {
+        long h = asciiHash(word);
+        if (h < 0) {
+            byte[] encoded = word.getBytes(StandardCharsets.UTF_8);
+            return id(encoded, 0, encoded.length);
+        }
+        int length = word.length();
+        for (int slot = (int) h & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (id < 0) return -1;
+            int start = offsets[id];
+            if (offsets[id + 1] - start != length) continue;
+            int i = 0;
+            while (i < length && bytes[start + i] == (byte) word.charAt(i)) i++;
+            if (i == length) return id;
+        }
+    }
+
+    /**
+     * @return UTF-8 字节 word[start, start+length) 对应的编号，不存在时返回 -1
+     */
+    public int id(byte[] word, int start, int length) {
+        int found = find(word, start, length, hash(word, start, length));
+        return found >= 0 ? found : -1;
+    }
+
+    /**
+     * 查找单词
+     * @return 找到时为编号，否则为 -1 - 可以插入的空槽
+     */
+    private int find(byte[] word, int start, int length, int h) {
+        for (int slot = h & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (id < 0) return -1 - slot;
+            int from = offsets[id];
+            if (offsets[id + 1] - from != length) continue;
+            int i = 0;
+            while (i < length && bytes[from + i] == word[start + i]) i++;
+            if (i == length) return id;
+        }
+    }
+
+    /**
+     * 添加单词（已存在时直接返回编号），word 的内容会被复制
+     * @return UTF-8 字节 word[start, start+length) 的编号
+     */
+    public int intern(byte[] word, int start, int length) {
+        int h = hash(word, start, length);
+        int found = find(word, start, length, h);
+        if (found >= 0) return found;
+        int end = offsets[size];
+        if (end + length > bytes.length) {
+            bytes = Arrays.copyOf(bytes, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(bytes.length * 2L, end + (long) length)));
+        }
+        System.arraycopy(word, start, bytes, end, length);
+        if (size + 1 == offsets.length) offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        offsets[size + 1] = end + length;
+        int id = size++;
+        if (size * 2 > slots.length) rehash();
+        else slots[-1 - found] = id + 1;
+        return id;
+    }
+
+    public int intern(String word) {
+        byte[] encoded = word.getBytes(StandardCharsets.UTF_8);
+        return intern(encoded, 0, encoded.length);
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int start = offsets[id];
+            int slot = hash(bytes, start, offsets[id + 1] - start) & mask;
+            while (slots[slot] != 0) slot = (slot + 1) & mask;
+            slots[slot] = id + 1;
+        }
+    }
+
+    @Override
+    public String word(int id) {
+        int start = offsets[id];
+        return new String(bytes, start, offsets[id + 1] - start, StandardCharsets.UTF_8);
+    }
+}
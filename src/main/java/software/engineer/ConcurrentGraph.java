@@ -0,0 +1,307 @@
+package software.engineer;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 线程安全的图实现，允许多个线程同时添加单词与边，同时供其他线程查询
+ * *********************
+ * 顶点表：ConcurrentHashMap 保存 单词 -> 编号，编号在图自身的锁内分配，
+ *   顶点按编号分块保存（块只追加不移动），读取不加锁
+ * 边权重：按边 (from, to) 的散列分成 64 段，每段一把锁和一个 {@link LongIntHashMap}，
+ *   不同段的修改互不阻塞，也没有所有写者共享的计数器；
+ *   新边在首次出现时追加到起点的出边表与终点的入边表，各自在该顶点上加锁
+ * 快照：{@link #snapshot()} 持有图自身的锁（阻止分配新顶点）并依次锁住所有段，
+ *   因此得到的 {@link CsrGraph} 是某一时刻一致的图
+ * *********************
+ * 单独的查询（如 getNeighbors）返回调用时刻的结果，但不同查询之间可能观察到并发的修改，
+ * 需要一致视图的读者（最短路径、桥接词索引等）应先取快照
+ */
+class ConcurrentGraph implements Graph {
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int INITIAL_DEGREE = 4;
+    private static final int STRIPE_BITS = 6;
+    private static final int STRIPES = 1 << STRIPE_BITS;
+
+    /**
+     * 一个顶点的出边与入边，由该对象自身的锁保护
+     */
+    private static final class Vertex {
+        final String name;
+        int[] targets = new int[INITIAL_DEGREE];
+        int degree;
+        int[] sources = new int[INITIAL_DEGREE];
+        int inDegree;
+
+        Vertex(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * 一段边权重 (from << 32 | to) -> 权重，由 lock 保护
+     */
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        final LongIntHashMap weights = new LongIntHashMap();
+    }
+
+    private final ConcurrentHashMap<String, Integer> index = new ConcurrentHashMap<>();
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private volatile Vertex[][] chunks = new Vertex[16][];
+    private volatile int size; // 已发布的顶点数，写入顶点之后才递增
+
+    public ConcurrentGraph() {
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Stripe();
+    }
+
+    public ConcurrentGraph(String[] vertexes) {
+        this();
+        for (String vertex : vertexes) addVertex(vertex);
+    }
+
+    public ConcurrentGraph(Graph other) {
+        this();
+        for (String vertex : other.getVertexes()) addVertex(vertex);
+        other.forEachEdge(this::addEdge);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void addVertex(String vertex) {
+        intern(vertex);
+    }
+
+    /**
+     * 添加顶点（已存在时忽略）
+     * @return 顶点编号
+     */
+    public int intern(String vertex) {
+        Integer id = index.get(vertex);
+        return id != null ? id : index.computeIfAbsent(vertex, this::allocate);
+    }
+
+    /**
+     * 添加顶点，多个线程同时添加同一个单词时只有一个线程得到新编号
+     * @return 本次调用添加的顶点编号；已存在时为 -1 - 已有的编号
+     */
+    public int add(String vertex) {
+        Integer id = index.get(vertex);
+        if (id != null) return -1 - id;
+        int[] created = {-1};
+        id = index.computeIfAbsent(vertex, word -> created[0] = allocate(word));
+        return created[0] >= 0 ? id : -1 - id;
+    }
+
+    private synchronized int allocate(String vertex) {
+        int id = size;
+        Vertex[][] directory = chunks;
+        int chunk = id >>> CHUNK_BITS;
+        if (chunk == directory.length) directory = Arrays.copyOf(directory, chunk * 2);
+        if (directory[chunk] == null) directory[chunk] = new Vertex[CHUNK_SIZE];
+        directory[chunk][id & (CHUNK_SIZE - 1)] = new Vertex(vertex);
+        chunks = directory;
+        size = id + 1;
+        return id;
+    }
+
+    private Vertex vertex(int v) {
+        Objects.checkIndex(v, size);
+        return chunks[v >>> CHUNK_BITS][v & (CHUNK_SIZE - 1)];
+    }
+
+    @Override
+    public List<String> getVertexes() {
+        int n = size;
+        List<String> results = new ArrayList<>(n);
+        for (int v = 0; v < n; v++) results.add(vertex(v).name);
+        return Collections.unmodifiableList(results);
+    }
+
+    @Override
+    public int getVertex(String vertex) {
+        Integer i = index.get(vertex);
+        return i == null ? -1 : i;
+    }
+
+    @Override
+    public String getVertex(int index) {
+        if (index < size && index >= 0)
+            return vertex(index).name;
+        else {
+            throw new IndexOutOfBoundsException(index);
+        }
+    }
+
+    @Override
+    public List<String> getNeighbors(String v) {
+        List<String> results = new ArrayList<>();
+        int from = getVertex(v);
+        if (from >= 0) {
+            for (int to : getNeighbors(from)) results.add(vertex(to).name);
+        }
+        return results;
+    }
+
+    @Override
+    public int[] getNeighbors(int v) {
+        Vertex vertex = vertex(v);
+        int[] targets;
+        synchronized (vertex) {
+            targets = Arrays.copyOf(vertex.targets, vertex.degree);
+        }
+        int count = 0;
+        for (int to : targets) {
+            if (getEdge(v, to) > 0) targets[count++] = to;
+        }
+        return count == targets.length ? targets : Arrays.copyOf(targets, count);
+    }
+
+    @Override
+    public int[] getPredecessors(int v) {
+        Vertex vertex = vertex(v);
+        int[] sources;
+        synchronized (vertex) {
+            sources = Arrays.copyOf(vertex.sources, vertex.inDegree);
+        }
+        int count = 0;
+        for (int from : sources) {
+            if (getEdge(from, v) > 0) sources[count++] = from;
+        }
+        return count == sources.length ? sources : Arrays.copyOf(sources, count);
+    }
+
+    @Override
+    public void addEdge(String a, String b, int value) throws Exception {
+        int from = getVertex(a), to = getVertex(b);
+        if (from < 0 || to < 0) throw new Exception("Vertex is not exist");
+        addEdge(from, to, value);
+    }
+
+    @Override
+    public void addEdge(String a, String b) throws Exception {
+        int from = getVertex(a), to = getVertex(b);
+        if (from < 0 || to < 0) throw new Exception("Vertex is not exist");
+        addEdge(from, to);
+    }
+
+    @Override
+    public void addEdge(int a, int b) {
+        increment(a, b);
+    }
+
+    /**
+     * 将边 a -> b 的权重 +1（边不存在时添加）
+     * @return 本次修改后的权重，多个线程同时修改同一条边时各自得到不同的值
+     */
+    public int increment(int a, int b) {
+        long key = LongIntHashMap.key(a, b);
+        Stripe stripe = stripe(key);
+        stripe.lock.lock();
+        try {
+            int edges = stripe.weights.size();
+            int weight = stripe.weights.addTo(key, 1);
+            if (stripe.weights.size() != edges) link(a, b);
+            return weight;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    @Override
+    public void addEdge(int a, int b, int value) {
+        long key = LongIntHashMap.key(a, b);
+        Stripe stripe = stripe(key);
+        stripe.lock.lock();
+        try {
+            int edges = stripe.weights.size();
+            stripe.weights.put(key, value);
+            if (stripe.weights.size() != edges) link(a, b);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private Stripe stripe(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return stripes[(int) (h >>> (Long.SIZE - STRIPE_BITS))];
+    }
+
+    /**
+     * 新边追加到 a 的出边表与 b 的入边表（持有该边所在段的锁时调用）
+     */
+    private void link(int a, int b) {
+        Vertex from = vertex(a), to = vertex(b);
+        synchronized (from) {
+            if (from.degree == from.targets.length) from.targets = Arrays.copyOf(from.targets, from.degree * 2);
+            from.targets[from.degree++] = b;
+        }
+        synchronized (to) {
+            if (to.inDegree == to.sources.length) to.sources = Arrays.copyOf(to.sources, to.inDegree * 2);
+            to.sources[to.inDegree++] = a;
+        }
+    }
+
+    @Override
+    public int getEdge(String a, String b) {
+        int from = getVertex(a), to = getVertex(b);
+        if (from < 0 || to < 0) return -1;
+        return getEdge(from, to);
+    }
+
+    @Override
+    public int getEdge(int a, int b) {
+        Objects.checkIndex(a, size);
+        Objects.checkIndex(b, size);
+        long key = LongIntHashMap.key(a, b);
+        Stripe stripe = stripe(key);
+        stripe.lock.lock();
+        try {
+            return Math.max(stripe.weights.get(key), 0);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Edge> getEdges() {
+        List<Edge> results = new ArrayList<>();
+        int n = size;
+        for (int i = 0; i < n; i++) {
+            for (int j : getNeighbors(i)) results.add(new Edge(vertex(i).name, vertex(j).name, getEdge(i, j)));
+        }
+        return results;
+    }
+
+    /**
+     * 取得图在某一时刻的一致快照，期间的修改被短暂阻塞
+     * @return 只读图，可以在多个线程间安全共享
+     */
+    public CsrGraph snapshot() {
+        synchronized (this) {
+            for (Stripe stripe : stripes) stripe.lock.lock();
+            try {
+                return CsrGraph.copyOf(this);
+            } finally {
+                for (Stripe stripe : stripes) stripe.lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void print() {
+        System.out.println("Concurrent Adjacency List:");
+        int n = size;
+        for (int i = 0; i < n; i++) {
+            StringJoiner joiner = new StringJoiner(", ", vertex(i).name + " -> [", "]");
+            for (int j : getNeighbors(i)) joiner.add(vertex(j).name + "=" + getEdge(i, j));
+            System.out.println(joiner);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package software.engineer;
+
+import java.nio.IntBuffer;
+import java.util.*;
+
+/**
+ * 压缩稀疏行（CSR）格式的只读图
+ * 顶点 v 的出边为 targets[offsets[v] .. offsets[v+1])（终点升序），权重在 weights 的相同位置；
+ * 入边同理保存在 inOffsets / sources 中。数组以 IntBuffer 表示，既可以是堆内数组，
+ * 也可以是 {@link GraphSnapshot} 内存映射的文件区域
+ * 顶点的单词表通过 {@link WordDictionary} 访问，默认为堆内的 {@link CompactDictionary}
+ * 图一旦生成不可修改，可以在多个线程间安全共享
+ */
+class CsrGraph implements Graph {
+    private final WordDictionary dictionary;
+    private final IntBuffer offsets;
+    private final IntBuffer targets;
+    private final IntBuffer weights;
+    private final IntBuffer inOffsets;
+    private final IntBuffer sources;
+
+    CsrGraph(List<String> vertexes, IntBuffer offsets, IntBuffer targets, IntBuffer weights,
+             IntBuffer inOffsets, IntBuffer sources) {
+        this(new CompactDictionary(vertexes), offsets, targets, weights, inOffsets, sources);
+    }
+
+    CsrGraph(WordDictionary dictionary, IntBuffer offsets, IntBuffer targets, IntBuffer weights,
+             IntBuffer inOffsets, IntBuffer sources) {
+        this.dictionary = dictionary;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.inOffsets = inOffsets;
+        this.sources = sources;
+    }
+
+    /**
+     * 复制任意图为 CSR 格式（只保留权重大于 0 的边）
+     */
+    static CsrGraph copyOf(Graph graph) {
+        int n = graph.size();
+        int[][] rows = new int[n][];
+        int[] offsets = new int[n + 1];
+        int[] inDegree = new int[n];
+        for (int v = 0; v < n; v++) {
+            rows[v] = graph.getNeighbors(v);
+            Arrays.sort(rows[v]);
+            offsets[v + 1] = offsets[v] + rows[v].length;
+            for (int t : rows[v]) inDegree[t]++;
+        }
+        int m = offsets[n];
+        int[] targets = new int[m];
+        int[] weights = new int[m];
+        int[] inOffsets = new int[n + 1];
+        for (int v = 0; v < n; v++) inOffsets[v + 1] = inOffsets[v] + inDegree[v];
+        int[] sources = new int[m];
+        int[] fill = Arrays.copyOf(inOffsets, n);
+        for (int v = 0; v < n; v++) {
+            int k = offsets[v];
+            for (int t : rows[v]) {
+                targets[k] = t;
+                weights[k++] = graph.getEdge(v, t);
+                sources[fill[t]++] = v; // v 递增，因此每个顶点的入边起点也是升序
+            }
+            rows[v] = null;
+        }
+        return new CsrGraph(graph.getVertexes(), IntBuffer.wrap(offsets), IntBuffer.wrap(targets),
+                IntBuffer.wrap(weights), IntBuffer.wrap(inOffsets), IntBuffer.wrap(sources));
+    }
+
+    @Override
+    public int size() {
+        return dictionary.size();
+    }
+
+    public int edgeCount() {
+        return offsets.get(size());
+    }
+
+    @Override
+    public void addVertex(String vertex) {
+        throw new UnsupportedOperationException("CsrGraph is read-only");
+    }
+
+    @Override
+    public List<String> getVertexes() {
+        return dictionary.words();
+    }
+
+    @Override
+    public int getVertex(String vertex) {
+        return dictionary.id(vertex);
+    }
+
+    @Override
+    public String getVertex(int index) {
+        if (index < size() && index >= 0)
+            return dictionary.word(index);
+        else {
+            throw new IndexOutOfBoundsException(index);
+        }
+    }
+
+    @Override
+    public List<String> getNeighbors(String v) {
+        List<String> results = new ArrayList<>();
+        int from = getVertex(v);
+        if (from >= 0) {
+            for (int k = offsets.get(from), end = offsets.get(from + 1); k < end; k++) {
+                results.add(dictionary.word(targets.get(k)));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public int[] getNeighbors(int v) {
+        Objects.checkIndex(v, size());
+        int start = offsets.get(v);
+        int[] results = new int[offsets.get(v + 1) - start];
+        targets.get(start, results);
+        return results;
+    }
+
+    @Override
+    public int[] getPredecessors(int v) {
+        Objects.checkIndex(v, size());
+        int start = inOffsets.get(v);
+        int[] results = new int[inOffsets.get(v + 1) - start];
+        sources.get(start, results);
+        return results;
+    }
+
+    @Override
+    public void addEdge(String a, String b) {
+        throw new UnsupportedOperationException("CsrGraph is read-only");
+    }
+
+    @Override
+    public void addEdge(String a, String b, int value) {
+        throw new UnsupportedOperationException("CsrGraph is read-only");
+    }
+
+    @Override
+    public void addEdge(int a, int b) {
+        throw new UnsupportedOperationException("CsrGraph is read-only");
+    }
+
+    @Override
+    public void addEdge(int a, int b, int value) {
+        throw new UnsupportedOperationException("CsrGraph is read-only");
+    }
+
+    @Override
+    public int getEdge(String a, String b) {
+        int from = getVertex(a), to = getVertex(b);
+        if (from < 0 || to < 0) return -1;
+        return getEdge(from, to);
+    }
+
+    @Override
+    public int getEdge(int a, int b) {
+        Objects.checkIndex(a, size());
+        Objects.checkIndex(b, size());
+        // 每行的终点升序排列，二分查找
+        int low = offsets.get(a), high = offsets.get(a + 1) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int t = targets.get(mid);
+            if (t < b) low = mid + 1;
+            else if (t > b) high = mid - 1;
+            else return weights.get(mid);
+        }
+        return 0;
+    }
+
+    @Override
+    public void forEachOutEdge(int v, EdgeVisitor visitor) {
+        Objects.checkIndex(v, size());
+        for (int k = offsets.get(v), end = offsets.get(v + 1); k < end; k++) {
+            visitor.visit(v, targets.get(k), weights.get(k));
+        }
+    }
+
+    @Override
+    public void forEachInEdge(int v, EdgeVisitor visitor) {
+        Objects.checkIndex(v, size());
+        for (int k = inOffsets.get(v), end = inOffsets.get(v + 1); k < end; k++) {
+            int from = sources.get(k);
+            visitor.visit(from, v, getEdge(from, v));
+        }
+    }
+
+    @Override
+    public void forEachEdge(EdgeVisitor visitor) {
+        for (int v = 0, k = 0; v < size(); v++) {
+            for (int end = offsets.get(v + 1); k < end; k++) visitor.visit(v, targets.get(k), weights.get(k));
+        }
+    }
+
+    @Override
+    public List<Edge> getEdges() {
+        List<Edge> results = new ArrayList<>();
+        for (int v = 0; v < size(); v++) {
+            for (int k = offsets.get(v), end = offsets.get(v + 1); k < end; k++) {
+                results.add(new Edge(dictionary.word(v), dictionary.word(targets.get(k)), weights.get(k)));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public void print() {
+        System.out.println("CSR:");
+        for (int v = 0; v < size(); v++) {
+            StringJoiner joiner = new StringJoiner(", ", dictionary.word(v) + " -> [", "]");
+            for (int k = offsets.get(v), end = offsets.get(v + 1); k < end; k++) {
+                joiner.add(dictionary.word(targets.get(k)) + "=" + weights.get(k));
+            }
+            System.out.println(joiner);
+        }
+    }
+
+    /* 供 GraphSnapshot 序列化 */
+    IntBuffer offsets() {
+        return offsets.duplicate();
+    }
+
+    IntBuffer targets() {
+        return targets.duplicate();
+    }
+
+    IntBuffer weights() {
+        return weights.duplicate();
+    }
+
+    IntBuffer inOffsets() {
+        return inOffsets.duplicate();
+    }
+
+    IntBuffer sources() {
+        return sources.duplicate();
+    }
+}
@@ -0,0 +1,250 @@
+package software.engineer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * 全源最短路径表
+ * 预先计算所有顶点对之间的最短距离与前驱并写入文件，查询时内存映射该文件，
+ * 最短路径查询变为查表与沿前驱回溯
+ * *********************
+ * 计算方式：顶点数较少且边较稠密时使用 Floyd–Warshall，否则在 ForkJoinPool 上并行执行每个源点的 Dijkstra
+ * 文件格式（小端序）：int magic 'LAPS', int version, int V, long E, long fingerprint, int[V*V] dist, int[V*V] pred
+ *   dist[s*V+t] 为 s 到 t 的距离（不可达为 Integer.MAX_VALUE），pred[s*V+t] 为该路径上 t 的前一个顶点
+ *   fingerprint 由顶点顺序与所有边的权重计算（见 {@link #fingerprint}），加载时与当前的图比较
+ * *********************
+ */
+class DistanceTable {
+    static final int MAGIC = 0x4C415053; // "LAPS"
+    static final int VERSION = 2;
+    private static final int HEADER_BYTES = 3 * Integer.BYTES + 2 * Long.BYTES;
+    private static final int FLOYD_MAX_VERTEXES = 2000;
+    private static final double FLOYD_MIN_DENSITY = 0.05;
+    private static final long SEGMENT_BYTES = 1L << 30; // 单次映射不能超过 2GB
+
+    private final int size;
+    private final int rowsPerSegment;
+    private final IntBuffer[] dist;
+    private final IntBuffer[] pred;
+
+    private DistanceTable(int size, int rowsPerSegment, IntBuffer[] dist, IntBuffer[] pred) {
+        this.size = size;
+        this.rowsPerSegment = rowsPerSegment;
+        this.dist = dist;
+        this.pred = pred;
+    }
+
+    /**
+     * @return V 个顶点的表的文件大小（每个顶点对 8 字节）
+     */
+    static long fileBytes(int n) {
+        return HEADER_BYTES + 2L * n * n * Integer.BYTES;
+    }
+
+    /**
+     * 检查文件是否为 graph 的全源最短路径表（文件头与大小），不读取表的内容
+     * @return 文件不存在、格式不对或属于其他图时返回 false
+     */
+    static boolean matches(String file, Graph graph) throws IOException {
+        if (!Files.exists(Paths.get(file))) return false;
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            if (channel.read(header, 0) != HEADER_BYTES) return false;
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) return false;
+            int n = header.getInt();
+            header.getLong(); // 边数
+            return n == graph.size() && header.getLong() == fingerprint(graph) && channel.size() == fileBytes(n);
+        }
+    }
+
+    /**
+     * 计算全源最短路径并写入文件
+     * @param graph 有向图
+     * @param file 输出文件路径
+     */
+    static void compute(Graph graph, String file) throws IOException {
+        Metrics.timeIO(Metrics.Operation.APSP_BUILD, () -> {
+            int n = graph.size();
+            long m = edgeCount(graph);
+            long fingerprint = fingerprint(graph);
+            try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE, StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putInt(VERSION).putInt(n).putLong(m).putLong(fingerprint).flip();
+                channel.write(header, 0);
+                if (n > 0 && n <= FLOYD_MAX_VERTEXES && m >= FLOYD_MIN_DENSITY * n * n) {
+                    floydWarshall(graph, channel);
+                } else {
+                    try {
+                        IntStream.range(0, n).parallel().forEach(s -> {
+                            ShortestPaths paths = ShortestPaths.compute(graph, s);
+                            writeRow(channel, n, s, paths.distances(), paths.predecessors());
+                        });
+                    } catch (UncheckedIOException e) {
+                        throw e.getCause();
+                    }
+                }
+            }
+        });
+    }
+
+    private static long edgeCount(Graph graph) {
+        long[] count = {0};
+        graph.forEachEdge((from, to, weight) -> count[0]++);
+        return count[0];
+    }
+
+    /**
+     * 图的指纹：顶点单词按编号顺序依次散列，每条边 (from, to, weight) 单独散列后求和（与边的遍历顺序无关）
+     * 顶点数与边数相同、只有权重不同的图（如 "a b a b" 与 "a b a b a b"）指纹也不同
+     */
+    static long fingerprint(Graph graph) {
+        long vertexes = graph.size();
+        for (String word : graph.getVertexes()) vertexes = mix(vertexes * 31 + word.hashCode());
+        long[] edges = {0};
+        graph.forEachEdge((from, to, weight) -> edges[0] += mix(((long) from << 32 | to) ^ mix(weight)));
+        return mix(vertexes ^ edges[0]);
+    }
+
+    /**
+     * SplitMix64 的最终混合函数
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static void floydWarshall(Graph graph, FileChannel channel) {
+        int n = graph.size();
+        int[][] dist = new int[n][n];
+        int[][] pred = new int[n][n];
+        for (int i = 0; i < n; i++) {
+            Arrays.fill(dist[i], ShortestPaths.UNREACHABLE);
+            Arrays.fill(pred[i], -1);
+            dist[i][i] = 0;
+            pred[i][i] = -1;
+        }
+        graph.forEachEdge((i, j, weight) -> {
+            if (i == j) return;
+            dist[i][j] = weight;
+            pred[i][j] = i;
+        });
+        for (int k = 0; k < n; k++) {
+            int[] distK = dist[k], predK = pred[k];
+            for (int i = 0; i < n; i++) {
+                int ik = dist[i][k];
+                if (ik == ShortestPaths.UNREACHABLE) continue;
+                int[] distI = dist[i], predI = pred[i];
+                for (int j = 0; j < n; j++) {
+                    if (distK[j] != ShortestPaths.UNREACHABLE && ik + distK[j] < distI[j]) {
+                        distI[j] = ik + distK[j];
+                        predI[j] = predK[j];
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < n; i++) writeRow(channel, n, i, dist[i], pred[i]);
+    }
+
+    /**
+     * 写入源点 s 的一行，FileChannel 的定位写入是线程安全的
+     */
+    private static void writeRow(FileChannel channel, int n, int s, int[] dist, int[] pred) {
+        ByteBuffer buffer = ByteBuffer.allocate(n * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        long table = (long) n * n * Integer.BYTES;
+        long row = HEADER_BYTES + (long) s * n * Integer.BYTES;
+        try {
+            buffer.asIntBuffer().put(dist);
+            write(channel, buffer, row);
+            buffer.clear();
+            buffer.asIntBuffer().put(pred);
+            write(channel, buffer, row + table);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) position += channel.write(buffer, position);
+    }
+
+    /**
+     * 内存映射全源最短路径文件
+     * @param file 文件路径
+     * @param graph 生成该表的图，用于校验顶点数与指纹
+     */
+    static DistanceTable load(String file, Graph graph) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            if (channel.read(header, 0) != HEADER_BYTES) throw new IOException("Truncated distance table: " + file);
+            header.flip();
+            if (header.getInt() != MAGIC) throw new IOException("Not a distance table: " + file);
+            int version = header.getInt();
+            if (version != VERSION) throw new IOException("Unsupported distance table version " + version + ": " + file);
+            int n = header.getInt();
+            header.getLong(); // 边数
+            long fingerprint = header.getLong();
+            if (n != graph.size() || fingerprint != fingerprint(graph)) {
+                throw new IOException("Distance table does not match the graph: " + file);
+            }
+            long table = (long) n * n * Integer.BYTES;
+            if (channel.size() != HEADER_BYTES + 2 * table) throw new IOException("Corrupted distance table: " + file);
+
+            int rowsPerSegment = (int) Math.max(1, SEGMENT_BYTES / Math.max(1, (long) n * Integer.BYTES));
+            int segments = n == 0 ? 0 : (n + rowsPerSegment - 1) / rowsPerSegment;
+            IntBuffer[] dist = new IntBuffer[segments], pred = new IntBuffer[segments];
+            for (int i = 0; i < segments; i++) {
+                long offset = (long) i * rowsPerSegment * n * Integer.BYTES;
+                long length = (long) Math.min(rowsPerSegment, n - i * rowsPerSegment) * n * Integer.BYTES;
+                dist[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + offset, length)
+                        .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+                pred[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + table + offset, length)
+                        .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            }
+            return new DistanceTable(n, rowsPerSegment, dist, pred);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int get(IntBuffer[] table, int s, int t) {
+        return table[s / rowsPerSegment].get((s % rowsPerSegment) * size + t);
+    }
+
+    /**
+     * @return s 到 t 的最短距离，不可达时返回 -1
+     */
+    public int distance(int s, int t) {
+        int d = get(dist, s, t);
+        return d == ShortestPaths.UNREACHABLE ? -1 : d;
+    }
+
+    /**
+     * 沿前驱表回溯 s 到 t 的最短路径
+     */
+    public Path path(int s, int t) {
+        int d = distance(s, t);
+        if (d < 0) return Path.UNREACHABLE;
+        int length = 1;
+        for (int p = t; p != s; p = get(pred, s, p)) length++;
+        int[] path = new int[length];
+        for (int p = t, i = length - 1; i >= 0; i--) {
+            path[i] = p;
+            if (i > 0) p = get(pred, s, p);
+        }
+        return new Path(path, d);
+    }
+}
@@ -0,0 +1,15 @@
+package software.engineer;
+
+/**
+ * 边的访问者，用于不分配对象地遍历图的边（见 {@link Graph#forEachOutEdge(int, EdgeVisitor)}）
+ * 访问者在遍历期间不能修改正在遍历的图
+ */
+@FunctionalInterface
+interface EdgeVisitor {
+    /**
+     * @param from 起点编号
+     * @param to 终点编号
+     * @param weight 边权重（大于 0）
+     */
+    void visit(int from, int to, int weight);
+}
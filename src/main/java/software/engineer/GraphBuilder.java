@@ -0,0 +1,133 @@
+package software.engineer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 逐词生成有向图：每收到一个单词，若为新单词则添加顶点，
+ * 并将前一个单词到该单词的边权重 +1
+ * 图生成后仍可通过 {@link #append(Reader)} 追加新文本，每个单词均摊 O(1)，
+ * 注册的 {@link GraphListener} 会同步收到新增的顶点与边；
+ * 多个构建器同时写入一个 {@link ConcurrentGraph} 时，每个新顶点只由添加它的构建器通知一次，
+ * 每条边收到的权重是本次 +1 之后的值（共享的监听器需要自己保证线程安全）
+ * 读取文本时单词按字节查找：图为 {@link AdjListGraph} 时直接在图的单词表中查找或添加，不创建 String；
+ * 其他图先在构建器自己的 {@link CompactDictionary} 中查找，映射到图的顶点编号后缓存，每个不同的单词只创建一次 String
+ */
+class GraphBuilder implements Consumer<String> {
+    private final Graph graph;
+    private final List<GraphListener> listeners = new ArrayList<>();
+    private CompactDictionary words; // 图不是 AdjListGraph 时使用，第一次追加文本时创建
+    private int[] vertexOf; // words 中的编号 -> 图的顶点编号
+    private int mapped; // 已映射的单词数
+    private int known; // 图为 AdjListGraph 时已通知过的顶点数
+    private int previous = -1;
+
+    public GraphBuilder(Graph graph) {
+        this.graph = graph;
+    }
+
+    public void addListener(GraphListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void accept(String word) {
+        link(vertexOf(word));
+    }
+
+    /**
+     * @param word 单词在 words 中的编号
+     */
+    private void accept(int word) {
+        if (word == mapped) { // 新单词的编号依次递增
+            if (mapped == vertexOf.length) vertexOf = Arrays.copyOf(vertexOf, mapped * 2);
+            vertexOf[mapped++] = vertexOf(words.word(word));
+        }
+        link(vertexOf[word]);
+    }
+
+    /**
+     * @param vertex {@link AdjListGraph#intern(byte[], int, int)} 得到的顶点编号
+     */
+    private void acceptVertex(int vertex) {
+        if (vertex == known) { // 新顶点的编号依次递增
+            known++;
+            for (GraphListener listener : listeners) listener.vertexAdded(vertex);
+        }
+        link(vertex);
+    }
+
+    /**
+     * @return 单词的顶点编号，不存在时添加顶点
+     */
+    private int vertexOf(String word) {
+        if (graph instanceof ConcurrentGraph concurrent) {
+            int vertex = concurrent.add(word);
+            if (vertex < 0) return -1 - vertex; // 已存在（可能刚由其他线程添加）
+            for (GraphListener listener : listeners) listener.vertexAdded(vertex);
+            return vertex;
+        }
+        int vertex = graph.getVertex(word);
+        if (vertex < 0) {
+            graph.addVertex(word);
+            vertex = graph.getVertex(word);
+            for (GraphListener listener : listeners) listener.vertexAdded(vertex);
+        }
+        return vertex;
+    }
+
+    private void link(int current) {
+        if (previous >= 0) {
+            if (graph instanceof ConcurrentGraph concurrent) {
+                int weight = concurrent.increment(previous, current);
+                for (GraphListener listener : listeners) listener.edgeAdded(previous, current, weight);
+            } else {
+                graph.addEdge(previous, current);
+                if (!listeners.isEmpty()) {
+                    int weight = graph.getEdge(previous, current);
+                    for (GraphListener listener : listeners) listener.edgeAdded(previous, current, weight);
+                }
+            }
+        }
+        previous = current;
+    }
+
+    /**
+     * 追加一篇新文本，它的第一个单词不与之前文本的最后一个单词相连
+     * @param reader 新文本
+     */
+    public void append(Reader reader) throws IOException {
+        previous = -1;
+        if (graph instanceof AdjListGraph list) {
+            known = list.size();
+            WordTokenizer.tokenize(reader, list::intern, this::acceptVertex);
+            return;
+        }
+        if (words == null) {
+            words = new CompactDictionary();
+            vertexOf = new int[16];
+        }
+        WordTokenizer.tokenize(reader, words, this::accept);
+    }
+
+    /**
+     * 追加一个新文本文件
+     * @param file 文件路径
+     */
+    public void append(String file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(Paths.get(file), StandardCharsets.ISO_8859_1)) {
+            append(reader);
+        }
+    }
+
+    public Graph getGraph() {
+        return graph;
+    }
+}
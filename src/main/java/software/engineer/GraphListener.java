@@ -0,0 +1,20 @@
+package software.engineer;
+
+/**
+ * 图增量更新的监听器，派生索引（如 {@link BridgeIndex}）通过它与图保持同步
+ */
+interface GraphListener {
+    /**
+     * 新增顶点
+     * @param v 新顶点编号
+     */
+    void vertexAdded(int v);
+
+    /**
+     * 边权重 +1
+     * @param a 起点编号
+     * @param b 终点编号
+     * @param weight 更新后的权重，为 1 时表示新出现的边
+     */
+    void edgeAdded(int a, int b, int weight);
+}
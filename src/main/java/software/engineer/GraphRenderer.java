@@ -0,0 +1,118 @@
+package software.engineer;
+
+import guru.nidi.graphviz.attribute.Attributes;
+import guru.nidi.graphviz.attribute.Color;
+import guru.nidi.graphviz.attribute.Label;
+import guru.nidi.graphviz.engine.Format;
+import guru.nidi.graphviz.engine.Graphviz;
+import guru.nidi.graphviz.model.Factory;
+import guru.nidi.graphviz.model.Link;
+import guru.nidi.graphviz.model.LinkSource;
+import guru.nidi.graphviz.model.Node;
+import org.apache.batik.anim.dom.SAXSVGDocumentFactory;
+import org.apache.batik.dom.util.DOMUtilities;
+import org.apache.batik.util.XMLResourceDescriptor;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static guru.nidi.graphviz.model.Factory.graph;
+
+/**
+ * 利用 Graphviz 将有向图渲染为 SVG
+ * Graphviz 布局只在图改变后重新计算：布局结果（所有边为黑色的 SVG DOM）被缓存，
+ * 突出显示路径时复制该 DOM 并直接修改路径上各条边的颜色
+ * 缓存按图对象区分；大图每次展示的子图由 {@link Subgraph.Viewport} 尽量复用，以免每一步都重新布局
+ */
+class GraphRenderer {
+    private Graph layoutGraph; // 缓存的布局所对应的图
+    private Document layout;   // 缓存的布局
+    private int layouts;       // 布局次数
+
+    /**
+     * 图发生改变，下次渲染时重新布局
+     */
+    public void graphChanged(Graph graph) {
+        if (layoutGraph == graph) layout = null;
+    }
+
+    /**
+     * 生成突出显示 path 的 SVG 并保存到 filename
+     * @return SVG 文档
+     */
+    public Document render(Graph graph, List<Edge> path, String filename) throws IOException {
+        return Metrics.timeIO(Metrics.Operation.RENDER, () -> {
+            if (layout == null || layoutGraph != graph) {
+                layout = layout(graph);
+                layoutGraph = graph;
+                layouts++;
+            }
+            Document document = DOMUtilities.deepCloneDocument(layout, layout.getImplementation());
+            for (Edge edge : path) {
+                int from = graph.getVertex(edge.from()), to = graph.getVertex(edge.to());
+                Element element = document.getElementById(edgeId(from, to));
+                if (element != null) highlight(element);
+            }
+            try (Writer out = Files.newBufferedWriter(Paths.get(filename), StandardCharsets.UTF_8)) {
+                DOMUtilities.writeDocument(document, out);
+            }
+            return document;
+        });
+    }
+
+    public int layouts() {
+        return layouts;
+    }
+
+    /**
+     * 用 Graphviz 对整个图布局，每条边的 SVG 元素 id 为 {@link #edgeId(int, int)}
+     */
+    private static Document layout(Graph graph) throws IOException {
+        return Metrics.timeIO(Metrics.Operation.LAYOUT, () -> {
+            Node[] nodes = new Node[graph.size()];
+            for (int v = 0; v < nodes.length; v++) nodes[v] = Factory.node(graph.getVertex(v));
+            List<LinkSource> linkSources = new ArrayList<>();
+            graph.forEachEdge((from, to, weight) -> linkSources.add(nodes[from]
+                    .link(
+                            Link.to(nodes[to])
+                                    .with(Label.of(Integer.toString(weight)), Color.BLACK, Attributes.attr("id", edgeId(from, to)))
+                    )));
+            guru.nidi.graphviz.model.Graph g = graph("text").directed()
+                    .linkAttr().with("class", "link-class")
+                    .with(linkSources);
+            String svg = Graphviz.fromGraph(g).render(Format.SVG).toString();
+            SAXSVGDocumentFactory factory = new SAXSVGDocumentFactory(XMLResourceDescriptor.getXMLParserClassName());
+            return factory.createSVGDocument("file:graph.svg", new StringReader(svg));
+        });
+    }
+
+    static String edgeId(int from, int to) {
+        return "e" + from + "_" + to;
+    }
+
+    /**
+     * 将一条边（线段与箭头）标为红色
+     */
+    private static void highlight(Element edge) {
+        NodeList children = edge.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+            if (!(children.item(i) instanceof Element child)) continue;
+            switch (child.getTagName()) {
+                case "path" -> child.setAttribute("stroke", "red");
+                case "polygon" -> {
+                    child.setAttribute("stroke", "red");
+                    child.setAttribute("fill", "red");
+                }
+            }
+        }
+    }
+}
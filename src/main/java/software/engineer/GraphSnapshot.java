@@ -0,0 +1,156 @@
+package software.engineer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 图的二进制快照，用于跳过读取文本与建图，快速启动
+ * *********************
+ * 文件格式（小端序）：
+ *   int magic 'LGRF', int version, int V, int E, int wordBytes
+ *   int[V+1] 单词在字节区中的偏移, byte[wordBytes] UTF-8 单词（补齐到 4 字节）
+ *   int[V+1] offsets, int[E] targets, int[E] weights   —— 出边 CSR
+ *   int[V+1] inOffsets, int[E] sources                 —— 入边 CSR
+ * *********************
+ * 读取时各个 int 数组直接内存映射为 IntBuffer，不复制到堆内
+ */
+class GraphSnapshot {
+    static final int MAGIC = 0x4C475246; // "LGRF"
+    static final int VERSION = 1;
+    private static final int HEADER_BYTES = 5 * Integer.BYTES;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private GraphSnapshot() {
+    }
+
+    /**
+     * 将图写入快照文件
+     * @param graph 有向图
+     * @param file 快照文件路径
+     */
+    static void write(Graph graph, String file) throws IOException {
+        CsrGraph csr = graph instanceof CsrGraph c ? c : CsrGraph.copyOf(graph);
+        int n = csr.size();
+        byte[][] words = new byte[n][];
+        int[] wordOffsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            words[i] = csr.getVertex(i).getBytes(StandardCharsets.UTF_8);
+            wordOffsets[i + 1] = wordOffsets[i] + words[i].length;
+        }
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(csr.edgeCount()).putInt(wordOffsets[n]);
+            writeInts(channel, buffer, IntBuffer.wrap(wordOffsets));
+            for (byte[] word : words) {
+                for (int i = 0; i < word.length; ) {
+                    if (!buffer.hasRemaining()) flush(channel, buffer);
+                    int k = Math.min(buffer.remaining(), word.length - i);
+                    buffer.put(word, i, k);
+                    i += k;
+                }
+            }
+            for (int pad = padding(wordOffsets[n]); pad > 0; pad--) {
+                if (!buffer.hasRemaining()) flush(channel, buffer);
+                buffer.put((byte) 0);
+            }
+            writeInts(channel, buffer, csr.offsets());
+            writeInts(channel, buffer, csr.targets());
+            writeInts(channel, buffer, csr.weights());
+            writeInts(channel, buffer, csr.inOffsets());
+            writeInts(channel, buffer, csr.sources());
+            flush(channel, buffer);
+        }
+    }
+
+    /**
+     * 内存映射快照文件，得到只读图（单词表解码到堆内）
+     * @param file 快照文件路径
+     * @return CSR 结构的只读图
+     */
+    static CsrGraph load(String file) throws IOException {
+        return load(file, false);
+    }
+
+    /**
+     * 内存映射快照文件，得到只读图
+     * @param file 快照文件路径
+     * @param offHeap 为 true 时单词表也直接使用映射的字节区（{@link OffHeapDictionary}），不解码到堆内
+     * @return CSR 结构的只读图，offHeap 时为 {@link OffHeapGraph}
+     */
+    static CsrGraph load(String file, boolean offHeap) throws IOException {
+        return Metrics.timeIO(Metrics.Operation.SNAPSHOT_LOAD, () -> {
+            try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                if (channel.read(header, 0) != HEADER_BYTES) throw new IOException("Truncated graph snapshot: " + file);
+                header.flip();
+                if (header.getInt() != MAGIC) throw new IOException("Not a graph snapshot: " + file);
+                int version = header.getInt();
+                if (version != VERSION) throw new IOException("Unsupported graph snapshot version " + version + ": " + file);
+                int n = header.getInt(), m = header.getInt(), wordBytes = header.getInt();
+
+                long position = HEADER_BYTES;
+                IntBuffer wordOffsets = map(channel, position, n + 1);
+                position += (n + 1L) * Integer.BYTES;
+                ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, position, wordBytes);
+                position += wordBytes + padding(wordBytes);
+                CompactDictionary vertexes = offHeap ? null : new CompactDictionary(n);
+                byte[] word = new byte[64];
+                for (int i = 0; !offHeap && i < n; i++) {
+                    int start = wordOffsets.get(i), length = wordOffsets.get(i + 1) - start;
+                    if (length > word.length) word = new byte[length];
+                    bytes.get(start, word, 0, length);
+                    vertexes.intern(word, 0, length);
+                }
+
+                IntBuffer offsets = map(channel, position, n + 1);
+                position += (n + 1L) * Integer.BYTES;
+                IntBuffer targets = map(channel, position, m);
+                position += (long) m * Integer.BYTES;
+                IntBuffer weights = map(channel, position, m);
+                position += (long) m * Integer.BYTES;
+                IntBuffer inOffsets = map(channel, position, n + 1);
+                position += (n + 1L) * Integer.BYTES;
+                IntBuffer sources = map(channel, position, m);
+                position += (long) m * Integer.BYTES;
+                if (position != channel.size()) throw new IOException("Corrupted graph snapshot: " + file);
+                if (offHeap) {
+                    return new OffHeapGraph(new OffHeapDictionary(bytes, wordOffsets), offsets, targets, weights, inOffsets, sources);
+                }
+                return new CsrGraph(vertexes, offsets, targets, weights, inOffsets, sources);
+            }
+        });
+    }
+
+    private static IntBuffer map(FileChannel channel, long position, int count) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, (long) count * Integer.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    private static int padding(int bytes) {
+        return (Integer.BYTES - bytes % Integer.BYTES) % Integer.BYTES;
+    }
+
+    private static void writeInts(FileChannel channel, ByteBuffer buffer, IntBuffer values) throws IOException {
+        while (values.hasRemaining()) {
+            if (buffer.remaining() < Integer.BYTES) flush(channel, buffer);
+            IntBuffer view = buffer.asIntBuffer(); // 视图继承 buffer 的字节序
+            int k = Math.min(view.remaining(), values.remaining());
+            view.put(values.slice().limit(k));
+            values.position(values.position() + k);
+            buffer.position(buffer.position() + k * Integer.BYTES);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+}
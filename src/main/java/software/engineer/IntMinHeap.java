@@ -0,0 +1,90 @@
+package software.engineer;
+
+import java.util.Arrays;
+
+/**
+ * 以顶点编号为元素、int 为优先级的索引二叉堆
+ * 支持 decrease-key，用于 Dijkstra 等最短路径算法，避免 PriorityQueue 的装箱与过期元素
+ */
+class IntMinHeap {
+    private final int[] heap;     // heap[i]: 堆中第 i 个位置的顶点
+    private final int[] position; // position[v]: 顶点 v 在堆中的位置，-1 表示不在堆中
+    private final int[] keys;     // keys[v]: 顶点 v 的优先级
+    private int size;
+
+    public IntMinHeap(int capacity) {
+        this.heap = new int[capacity];
+        this.position = new int[capacity];
+        this.keys = new int[capacity];
+        Arrays.fill(this.position, -1);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int v) {
+        return position[v] >= 0;
+    }
+
+    /**
+     * 插入顶点 v，若已在堆中且 key 更小则执行 decrease-key
+     */
+    public void push(int v, int key) {
+        if (position[v] < 0) {
+            heap[size] = v;
+            position[v] = size;
+            keys[v] = key;
+            siftUp(size++);
+        } else if (key < keys[v]) {
+            keys[v] = key;
+            siftUp(position[v]);
+        }
+    }
+
+    public int peekKey() {
+        return keys[heap[0]];
+    }
+
+    /**
+     * 弹出优先级最小的顶点
+     */
+    public int pop() {
+        int top = heap[0];
+        position[top] = -1;
+        if (--size > 0) {
+            heap[0] = heap[size];
+            position[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void siftUp(int i) {
+        int v = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[heap[parent]] <= keys[v]) break;
+            heap[i] = heap[parent];
+            position[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = v;
+        position[v] = i;
+    }
+
+    private void siftDown(int i) {
+        int v = heap[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && keys[heap[child + 1]] < keys[heap[child]]) child++;
+            if (keys[v] <= keys[heap[child]]) break;
+            heap[i] = heap[child];
+            position[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = v;
+        position[v] = i;
+    }
+}
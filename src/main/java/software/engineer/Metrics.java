@@ -0,0 +1,327 @@
+package software.engineer;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.StackTrace;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Formatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 各项操作的耗时与内存分配统计
+ * 每次操作记录耗时（对数分桶的直方图）、次数与当前线程分配的字节数，并提交一个 JFR 事件（{@link OperationEvent}），
+ * {@link #report()} 生成汇总表，App 通过 -M/--metrics 在退出时输出
+ * 只有通过 {@link #setEnabled(boolean)} 打开（-M）或 Flight Recorder 正在录制时才记录，
+ * 否则 {@link #time} 不创建 Sample，每次操作只多读两个 volatile 字段
+ * *********************
+ * 用法：
+ *   return Metrics.time(Metrics.Operation.BRIDGE, () -> ...);
+ * 会抛出 IOException 的操作使用 {@link #timeIO}
+ * 所有方法线程安全
+ * *********************
+ */
+final class Metrics {
+    enum Operation {
+        TOKENIZE("tokenize"),
+        BUILD("build"),
+        SNAPSHOT_LOAD("snapshot.load"),
+        APSP_BUILD("apsp.build"),
+        BRIDGE("bridge"),
+        TEXT("text"),
+        SHORTEST_PATH("path"),
+        DIJKSTRA("dijkstra"),
+        WALK("walk"),
+        LAYOUT("layout"),
+        RENDER("render");
+
+        final String label;
+        final Histogram histogram = new Histogram();
+
+        Operation(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    private static volatile boolean enabled; // -M
+    private static volatile boolean recording; // 有正在进行的 JFR 录制
+
+    static {
+        FlightRecorder.addListener(new FlightRecorderListener() {
+            @Override
+            public void recorderInitialized(FlightRecorder recorder) {
+                update(recorder);
+            }
+
+            @Override
+            public void recordingStateChanged(Recording changed) {
+                update(FlightRecorder.getFlightRecorder());
+            }
+
+            private void update(FlightRecorder recorder) {
+                recording = recorder.getRecordings().stream().anyMatch(r -> r.getState() == RecordingState.RUNNING);
+            }
+        });
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * 打开或关闭统计（不影响 JFR 录制期间的记录）
+     */
+    static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported()) {
+            bean.setThreadAllocatedMemoryEnabled(true);
+            return bean;
+        }
+        return null;
+    }
+
+    private static long allocatedBytes() {
+        return THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * 开始记录一次操作，关闭返回的 Sample 时结束
+     */
+    private static Sample start(Operation operation) {
+        return enabled || recording ? new Sample(operation) : Sample.NONE;
+    }
+
+    /**
+     * 会抛出 IOException 的操作
+     */
+    @FunctionalInterface
+    interface IOSupplier<T> {
+        T get() throws IOException;
+    }
+
+    /**
+     * 会抛出 IOException、没有结果的操作
+     */
+    @FunctionalInterface
+    interface IORunnable {
+        void run() throws IOException;
+    }
+
+    /**
+     * 执行并记录一次操作
+     * @return body 的结果
+     */
+    static <T> T time(Operation operation, Supplier<T> body) {
+        Sample sample = start(operation);
+        try {
+            return body.get();
+        } finally {
+            sample.close();
+        }
+    }
+
+    /**
+     * 执行并记录一次可能抛出 IOException 的操作
+     * @return body 的结果
+     */
+    static <T> T timeIO(Operation operation, IOSupplier<T> body) throws IOException {
+        Sample sample = start(operation);
+        try {
+            return body.get();
+        } finally {
+            sample.close();
+        }
+    }
+
+    /**
+     * 执行并记录一次可能抛出 IOException、没有结果的操作
+     */
+    static void timeIO(Operation operation, IORunnable body) throws IOException {
+        Sample sample = start(operation);
+        try {
+            body.run();
+        } finally {
+            sample.close();
+        }
+    }
+
+    /**
+     * 一次正在进行的操作，必须在开始它的线程中关闭
+     */
+    private static final class Sample implements AutoCloseable {
+        private static final Sample NONE = new Sample();
+
+        private final Operation operation;
+        private final OperationEvent event;
+        private final long begin;
+        private final long allocated;
+
+        private Sample(Operation operation) {
+            this.operation = operation;
+            this.event = new OperationEvent();
+            event.begin();
+            this.allocated = allocatedBytes();
+            this.begin = System.nanoTime();
+        }
+
+        private Sample() {
+            this.operation = null;
+            this.event = null;
+            this.begin = 0;
+            this.allocated = 0;
+        }
+
+        @Override
+        public void close() {
+            if (operation == null) return;
+            long nanos = System.nanoTime() - begin;
+            long bytes = allocatedBytes() - allocated;
+            record(operation, nanos, bytes);
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = operation.label;
+                event.allocated = bytes;
+                event.commit();
+            }
+        }
+    }
+
+    static void record(Operation operation, long nanos, long bytes) {
+        operation.histogram.record(nanos, bytes);
+    }
+
+    /**
+     * 各项操作的汇总表（只包含发生过的操作）
+     */
+    static String report() {
+        Formatter report = new Formatter();
+        report.format("%-14s %10s %12s %12s %12s %12s %14s%n", "operation", "count", "mean", "p50", "p99", "max", "alloc/op");
+        for (Operation operation : Operation.values()) {
+            Histogram h = operation.histogram;
+            long count = h.count();
+            if (count == 0) continue;
+            report.format("%-14s %10d %12s %12s %12s %12s %14s%n", operation.label, count,
+                    duration(h.totalNanos() / count), duration(h.percentile(0.5)), duration(h.percentile(0.99)),
+                    duration(h.max()), bytes(h.totalBytes() / count));
+        }
+        return report.toString();
+    }
+
+    private static String duration(long nanos) {
+        if (nanos < 10_000) return nanos + " ns";
+        if (nanos < 10_000_000) return nanos / 1000 + " us";
+        if (nanos < 10_000_000_000L) return nanos / 1_000_000 + " ms";
+        return nanos / 1_000_000_000 + " s";
+    }
+
+    private static String bytes(long bytes) {
+        if (bytes < 10 << 10) return bytes + " B";
+        if (bytes < 10 << 20) return (bytes >> 10) + " KB";
+        return (bytes >> 20) + " MB";
+    }
+
+    /**
+     * 对数分桶的耗时直方图：每个 2 的幂区间再等分为 SUB_BUCKETS 个桶，相对误差不超过 1/SUB_BUCKETS
+     */
+    static final class Histogram {
+        private static final int SUB_BITS = 2;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB_BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder totalBytes = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long nanos, long bytes) {
+            nanos = Math.max(nanos, 0);
+            buckets.incrementAndGet(bucket(nanos));
+            count.increment();
+            totalNanos.add(nanos);
+            totalBytes.add(Math.max(bytes, 0));
+            max.accumulateAndGet(nanos, Math::max);
+        }
+
+        static int bucket(long value) {
+            if (value < SUB_BUCKETS) return (int) value;
+            int exponent = 63 - Long.numberOfLeadingZeros(value); // >= SUB_BITS
+            int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        /**
+         * @return 桶的上界（不含）
+         */
+        static long upperBound(int bucket) {
+            if (bucket < SUB_BUCKETS) return bucket + 1;
+            int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+            long sub = bucket % SUB_BUCKETS;
+            return (SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS);
+        }
+
+        /**
+         * @param quantile 0 ~ 1
+         * @return 估计的分位数（所在桶的上界，不超过最大值）
+         */
+        long percentile(double quantile) {
+            long total = 0;
+            for (int i = 0; i < buckets.length(); i++) total += buckets.get(i);
+            long rank = Math.max(1, (long) Math.ceil(quantile * total));
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) return Math.min(upperBound(i) - 1, max());
+            }
+            return max();
+        }
+
+        long count() {
+            return count.sum();
+        }
+
+        long totalNanos() {
+            return totalNanos.sum();
+        }
+
+        long totalBytes() {
+            return totalBytes.sum();
+        }
+
+        long max() {
+            return max.get();
+        }
+    }
+
+    /**
+     * JFR 事件，录制时可在 JDK Mission Control 中按操作查看耗时与分配
+     */
+    @Name("software.engineer.Operation")
+    @Label("Graph Operation")
+    @Category("Lab1-Graph")
+    @Description("One build, query or render operation")
+    @StackTrace(false)
+    static final class OperationEvent extends jdk.jfr.Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("Allocated")
+        @DataAmount
+        long allocated;
+    }
+}
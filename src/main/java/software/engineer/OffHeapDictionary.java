@@ -0,0 +1,243 @@
+package software.engineer;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 堆外的单词表
+ * 所有单词的 UTF-8 字节首尾相接保存在一个 ByteBuffer 中，单词 i 为 bytes[offsets[i], offsets[i+1])；
+ * 查找使用开放定址（线性探测）的散列表 slots，槽中保存单词编号 + 1（0 表示空槽）
+ * 三个缓冲区都可以是直接内存或内存映射的文件区域，堆内只剩几个缓冲区对象，
+ * 单词数量不影响堆的大小与 GC 停顿；代价是 {@link #word(int)} 每次都要解码出一个新的 String
+ * 只读，可以在多个线程间安全共享；逐词生成单词表时使用 {@link Builder}
+ * *********************
+ * 直接内存不计入 -Xmx，但总量受 -XX:MaxDirectMemorySize 限制（未指定时等于 -Xmx 的值），
+ * 单个缓冲区不超过 2GB；{@link #allocateBytes(long)} 在分配前检查这两个上限
+ * *********************
+ */
+class OffHeapDictionary implements WordDictionary {
+    private static final long MAX_DIRECT_MEMORY = maxDirectMemory();
+
+    private final ByteBuffer bytes;
+    private final IntBuffer offsets;
+    private final IntBuffer slots;
+    private final int mask;
+    private final int size;
+
+    /**
+     * @param bytes 单词字节区（UTF-8）
+     * @param offsets 单词偏移，长度为 size + 1
+     */
+    OffHeapDictionary(ByteBuffer bytes, IntBuffer offsets) {
+        this.bytes = bytes;
+        this.offsets = offsets;
+        this.size = offsets.limit() - 1;
+        int capacity = Integer.highestOneBit(Math.max(2, size * 2 - 1)) << 1; // 装载因子不超过 0.5
+        this.mask = capacity - 1;
+        this.slots = allocateInts(capacity);
+        for (int id = 0; id < size; id++) {
+            int start = offsets.get(id), length = offsets.get(id + 1) - start;
+            int slot = hash(bytes, start, length) & mask;
+            while (slots.get(slot) != 0) slot = (slot + 1) & mask;
+            slots.put(slot, id + 1);
+        }
+    }
+
+    private OffHeapDictionary(ByteBuffer bytes, IntBuffer offsets, IntBuffer slots) {
+        this.bytes = bytes;
+        this.offsets = offsets;
+        this.size = offsets.limit() - 1;
+        this.slots = slots;
+        this.mask = slots.limit() - 1;
+    }
+
+    /**
+     * 将单词列表复制到直接内存
+     */
+    static OffHeapDictionary of(List<String> words) {
+        IntBuffer offsets = allocateInts(words.size() + 1);
+        long total = 0;
+        for (int i = 0; i < words.size(); i++) {
+            total += words.get(i).getBytes(StandardCharsets.UTF_8).length;
+            if (total > Integer.MAX_VALUE) throw new IllegalArgumentException("Dictionary too large: " + total + " bytes");
+            offsets.put(i + 1, (int) total);
+        }
+        ByteBuffer bytes = allocateBytes(total);
+        for (int i = 0; i < words.size(); i++) bytes.put(offsets.get(i), words.get(i).getBytes(StandardCharsets.UTF_8));
+        return new OffHeapDictionary(bytes, offsets);
+    }
+
+    static IntBuffer allocateInts(long count) {
+        return allocateBytes(count * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    /**
+     * 分配直接内存，超过单个缓冲区 2GB 或 MaxDirectMemorySize 时抛出 IllegalArgumentException，
+     * 而不是在 allocateDirect 中溢出为负数或触发 Full GC 后才失败；
+     * 与已分配的直接内存之和超过上限时 OutOfMemoryError 中提示需要调整的参数
+     */
+    static ByteBuffer allocateBytes(long bytes) {
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Off-heap buffer too large: " + bytes + " bytes (at most 2GB per buffer)");
+        }
+        if (bytes > MAX_DIRECT_MEMORY) {
+            throw new IllegalArgumentException("Off-heap buffer of " + bytes + " bytes exceeds MaxDirectMemorySize ("
+                    + MAX_DIRECT_MEMORY + " bytes), raise -XX:MaxDirectMemorySize");
+        }
+        try {
+            return ByteBuffer.allocateDirect((int) bytes);
+        } catch (OutOfMemoryError e) { // 已分配的直接内存与本次之和超过上限
+            throw new OutOfMemoryError(e.getMessage() + ", raise -XX:MaxDirectMemorySize (defaults to -Xmx)");
+        }
+    }
+
+    /**
+     * @return -XX:MaxDirectMemorySize 的值，未指定时与 JVM 一样取 -Xmx（{@link Runtime#maxMemory()}）
+     */
+    static long maxDirectMemory() {
+        long max = Runtime.getRuntime().maxMemory();
+        for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (!argument.startsWith("-XX:MaxDirectMemorySize=")) continue;
+            String value = argument.substring(argument.indexOf('=') + 1).toLowerCase();
+            int shift = switch (value.charAt(value.length() - 1)) {
+                case 'k' -> 10;
+                case 'm' -> 20;
+                case 'g' -> 30;
+                case 't' -> 40;
+                default -> 0;
+            };
+            if (shift > 0) value = value.substring(0, value.length() - 1);
+            long size = Long.parseLong(value) << shift;
+            if (size > 0) max = size; // 0 表示使用默认值；多次指定时最后一个生效
+        }
+        return max;
+    }
+
+    /**
+     * FNV-1a
+     */
+    private static int hash(ByteBuffer bytes, int start, int length) {
+        int h = 0x811C9DC5;
+        for (int i = start; i < start + length; i++) h = (h ^ (bytes.get(i) & 0xFF)) * 0x01000193;
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int id(String word) {
+        int length = word.length();
+        int h = 0x811C9DC5;
+        for (int i = 0; i < length; i++) {
+            char c = word.charAt(i);
+            if (c >= 0x80) return id(word.getBytes(StandardCharsets.UTF_8)); // 非 ASCII 的单词先编码
+            h = (h ^ c) * 0x01000193;
+        }
+        h ^= h >>> 16;
+        for (int slot = h & mask; ; slot = (slot + 1) & mask) {
+            int id = slots.get(slot) - 1;
+            if (id < 0) return -1;
+            int start = offsets.get(id);
+            if (offsets.get(id + 1) - start != length) continue;
+            int i = 0;
+            while (i < length && bytes.get(start + i) == (byte) word.charAt(i)) i++;
+            if (i == length) return id;
+        }
+    }
+
+    int id(byte[] word) {
+        return id(word, 0, word.length);
+    }
+
+    /**
+     * @return UTF-8 字节 word[start, start+length) 对应的编号，不存在时返回 -1
+     */
+    int id(byte[] word, int start, int length) {
+        for (int slot = CompactDictionary.hash(word, start, length) & mask; ; slot = (slot + 1) & mask) {
+            int id = slots.get(slot) - 1;
+            if (id < 0) return -1;
+            int from = offsets.get(id);
+            if (offsets.get(id + 1) - from != length) continue;
+            int i = 0;
+            while (i < length && bytes.get(from + i) == word[start + i]) i++;
+            if (i == length) return id;
+        }
+    }
+
+    @Override
+    public String word(int id) {
+        int start = offsets.get(id);
+        byte[] word = new byte[offsets.get(id + 1) - start];
+        bytes.get(start, word);
+        return new String(word, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 逐词生成堆外单词表，用作 {@link WordTokenizer.Interner}
+     * 单词字节、偏移与散列表都在直接内存中按需倍增，堆内不保留任何单词
+     */
+    static final class Builder implements WordTokenizer.Interner {
+        private ByteBuffer bytes = allocateBytes(1 << 16);
+        private IntBuffer offsets = allocateInts(1 << 10);
+        private IntBuffer slots = allocateInts(1 << 11);
+        private int mask = (1 << 11) - 1;
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        @Override
+        public int intern(byte[] word, int start, int length) {
+            int slot = CompactDictionary.hash(word, start, length) & mask;
+            for (int id; (id = slots.get(slot) - 1) >= 0; slot = (slot + 1) & mask) {
+                int from = offsets.get(id);
+                if (offsets.get(id + 1) - from != length) continue;
+                int i = 0;
+                while (i < length && bytes.get(from + i) == word[start + i]) i++;
+                if (i == length) return id;
+            }
+            int end = offsets.get(size);
+            if (end + (long) length > bytes.limit()) {
+                ByteBuffer grown = allocateBytes(Math.max(end + (long) length, Math.min(2L * bytes.limit(), Integer.MAX_VALUE)));
+                grown.put(0, bytes, 0, end);
+                bytes = grown;
+            }
+            if (size + 2 > offsets.limit()) {
+                IntBuffer grown = allocateInts(2L * offsets.limit());
+                grown.put(0, offsets, 0, size + 1);
+                offsets = grown;
+            }
+            bytes.put(end, word, start, length);
+            offsets.put(size + 1, end + length);
+            slots.put(slot, ++size);
+            if (size * 2 > slots.limit()) rehash();
+            return size - 1;
+        }
+
+        private void rehash() {
+            slots = allocateInts(2L * slots.limit());
+            mask = slots.limit() - 1;
+            for (int id = 0; id < size; id++) {
+                int start = offsets.get(id);
+                int slot = hash(bytes, start, offsets.get(id + 1) - start) & mask;
+                while (slots.get(slot) != 0) slot = (slot + 1) & mask;
+                slots.put(slot, id + 1);
+            }
+        }
+
+        /**
+         * @return 只读的单词表，直接使用已生成的缓冲区，之后不能再调用 {@link #intern(byte[], int, int)}
+         */
+        OffHeapDictionary build() {
+            return new OffHeapDictionary(bytes, offsets.slice(0, size + 1), slots);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package software.engineer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * 堆外存储的只读图
+ * CSR 数组保存在直接内存（或内存映射的快照文件）中，单词表为 {@link OffHeapDictionary}，
+ * 堆内只保留少量缓冲区对象，顶点与边的数量不影响堆大小与 GC 停顿
+ * 其余行为与 {@link CsrGraph} 相同，所有只读操作（桥接词、最短路径、随机游走等）都可以直接使用；
+ * 不支持追加文本（复制为堆内的邻接表就失去了堆外存储的意义）
+ * *********************
+ * JDK 17 中 Foreign Memory API（MemorySegment）仍处于孵化阶段，这里使用直接 ByteBuffer 实现，
+ * 单个缓冲区不超过 2GB，即边数不超过 5 亿（{@link #build(Reader)} 要求单词出现次数不超过 5 亿），
+ * 直接内存的总量受 -XX:MaxDirectMemorySize 限制，未指定时等于 -Xmx
+ * *********************
+ */
+class OffHeapGraph extends CsrGraph {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    OffHeapGraph(OffHeapDictionary dictionary, IntBuffer offsets, IntBuffer targets, IntBuffer weights,
+                 IntBuffer inOffsets, IntBuffer sources) {
+        super(dictionary, offsets, targets, weights, inOffsets, sources);
+    }
+
+    /**
+     * 将任意图复制到堆外（只保留权重大于 0 的边），每次只在堆内保留一个顶点的出边
+     */
+    static OffHeapGraph copyOf(Graph graph) {
+        int n = graph.size();
+        IntBuffer offsets = OffHeapDictionary.allocateInts(n + 1);
+        IntBuffer inOffsets = OffHeapDictionary.allocateInts(n + 1);
+        graph.forEachEdge((from, to, weight) -> {
+            offsets.put(from + 1, offsets.get(from + 1) + 1);
+            inOffsets.put(to + 1, inOffsets.get(to + 1) + 1);
+        });
+        for (int v = 0; v < n; v++) {
+            offsets.put(v + 1, offsets.get(v + 1) + offsets.get(v));
+            inOffsets.put(v + 1, inOffsets.get(v + 1) + inOffsets.get(v));
+        }
+        int m = offsets.get(n);
+        IntBuffer targets = OffHeapDictionary.allocateInts(m);
+        IntBuffer weights = OffHeapDictionary.allocateInts(m);
+        IntBuffer sources = OffHeapDictionary.allocateInts(m);
+        IntBuffer fill = OffHeapDictionary.allocateInts(Math.max(n, 1)); // 每个顶点入边的写入位置
+        for (int v = 0; v < n; v++) fill.put(v, inOffsets.get(v));
+        for (int v = 0; v < n; v++) {
+            int[] row = graph.getNeighbors(v);
+            Arrays.sort(row); // 终点升序，供 getEdge 二分查找
+            int k = offsets.get(v);
+            for (int t : row) {
+                targets.put(k, t);
+                weights.put(k++, graph.getEdge(v, t));
+                int j = fill.get(t);
+                sources.put(j, v); // v 递增，因此每个顶点的入边起点也是升序
+                fill.put(t, j + 1);
+            }
+        }
+        return new OffHeapGraph(OffHeapDictionary.of(graph.getVertexes()), offsets, targets, weights, inOffsets, sources);
+    }
+
+    /**
+     * 读取文本文件并直接在堆外生成图
+     * @param file 文件路径
+     */
+    static OffHeapGraph build(String file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(Paths.get(file), StandardCharsets.ISO_8859_1)) {
+            return build(reader);
+        }
+    }
+
+    /**
+     * 读取文本并直接在堆外生成图，堆内只有分词缓冲区与一个顶点的出边
+     * 单词表由 {@link OffHeapDictionary.Builder} 生成，单词编号序列写入临时文件，
+     * 之后两次顺序读取该文件：先统计每个顶点的出现次数，再将每次相邻出现的终点写入直接内存，
+     * 最后逐个顶点排序去重得到出边与权重，入边的生成与 {@link #copyOf(Graph)} 相同
+     * @param reader 输入（无需带缓冲，内部按块读取）
+     */
+    static OffHeapGraph build(Reader reader) throws IOException {
+        OffHeapDictionary.Builder words = new OffHeapDictionary.Builder();
+        Path file = Files.createTempFile("offheap", ".tokens");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.nativeOrder());
+            long[] tokens = {0};
+            try {
+                WordTokenizer.tokenize(reader, words, word -> {
+                    if (!buffer.hasRemaining()) flush(channel, buffer);
+                    buffer.putInt(word);
+                    tokens[0]++;
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            flush(channel, buffer);
+
+            int n = words.size();
+            // 相邻出现 (v, t) 按起点分组写入 raw，rawOffsets[v] 为 v 的第一个位置
+            IntBuffer raw = OffHeapDictionary.allocateInts(Math.max(tokens[0] - 1, 0));
+            IntBuffer rawOffsets = OffHeapDictionary.allocateInts(n + 1);
+            forEachPair(channel, buffer, (from, to, weight) -> rawOffsets.put(from + 1, rawOffsets.get(from + 1) + 1));
+            for (int v = 0; v < n; v++) rawOffsets.put(v + 1, rawOffsets.get(v + 1) + rawOffsets.get(v));
+            IntBuffer fill = OffHeapDictionary.allocateInts(Math.max(n, 1));
+            for (int v = 0; v < n; v++) fill.put(v, rawOffsets.get(v));
+            forEachPair(channel, buffer, (from, to, weight) -> {
+                int k = fill.get(from);
+                raw.put(k, to);
+                fill.put(from, k + 1);
+            });
+
+            // 每行排序后写回，相同的终点合并为一条边
+            IntBuffer offsets = OffHeapDictionary.allocateInts(n + 1);
+            for (int v = 0; v < n; v++) {
+                int start = rawOffsets.get(v);
+                int[] row = new int[rawOffsets.get(v + 1) - start];
+                raw.get(start, row);
+                Arrays.sort(row);
+                raw.put(start, row);
+                int distinct = 0;
+                for (int i = 0; i < row.length; i++) if (i == 0 || row[i] != row[i - 1]) distinct++;
+                offsets.put(v + 1, offsets.get(v) + distinct);
+            }
+            int m = offsets.get(n);
+            IntBuffer targets = OffHeapDictionary.allocateInts(m);
+            IntBuffer weights = OffHeapDictionary.allocateInts(m);
+            IntBuffer inOffsets = OffHeapDictionary.allocateInts(n + 1);
+            for (int v = 0, k = -1; v < n; v++) {
+                for (int i = rawOffsets.get(v), end = rawOffsets.get(v + 1); i < end; i++) {
+                    int t = raw.get(i);
+                    if (i == rawOffsets.get(v) || t != raw.get(i - 1)) {
+                        targets.put(++k, t);
+                        inOffsets.put(t + 1, inOffsets.get(t + 1) + 1);
+                    }
+                    weights.put(k, weights.get(k) + 1);
+                }
+            }
+            for (int v = 0; v < n; v++) inOffsets.put(v + 1, inOffsets.get(v + 1) + inOffsets.get(v));
+            IntBuffer sources = OffHeapDictionary.allocateInts(m);
+            for (int v = 0; v < n; v++) fill.put(v, inOffsets.get(v));
+            for (int v = 0; v < n; v++) {
+                for (int k = offsets.get(v), end = offsets.get(v + 1); k < end; k++) {
+                    int t = targets.get(k), j = fill.get(t);
+                    sources.put(j, v); // v 递增，因此每个顶点的入边起点也是升序
+                    fill.put(t, j + 1);
+                }
+            }
+            return new OffHeapGraph(words.build(), offsets, targets, weights, inOffsets, sources);
+        }
+    }
+
+    /**
+     * 从头顺序读取单词编号文件，依次访问每对相邻的编号（权重恒为 1）
+     */
+    private static void forEachPair(FileChannel channel, ByteBuffer buffer, EdgeVisitor visitor) throws IOException {
+        int previous = -1;
+        long position = 0;
+        buffer.clear();
+        while (channel.read(buffer, position) > 0) {
+            position += buffer.position();
+            buffer.flip();
+            while (buffer.remaining() >= Integer.BYTES) {
+                int current = buffer.getInt();
+                if (previous >= 0) visitor.visit(previous, current, 1);
+                previous = current;
+            }
+            buffer.compact();
+            position -= buffer.position(); // 不完整的 int 留到下次读取
+            buffer.clear();
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) channel.write(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,179 @@
+package software.engineer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 并行读取输入文件并生成有向图
+ * 文件被切分为若干块（切分点对齐到非字母字节，保证单词不跨块），每块通过内存映射读取，
+ * 在 ForkJoinPool 上各自统计块内的顶点与相邻单词对（边）计数，最后按块顺序合并到同一个图中，
+ * 相邻两块之间跨越边界的那条边在合并时补上
+ * 与 {@link WordTokenizer} 的规则一致：只有 ASCII 字母构成单词，其余字节均为分隔符
+ */
+class ParallelGraphLoader {
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+    private static final int MAX_CHUNK_SIZE = 1 << 30; // 单次映射不能超过 2GB
+
+    private final ForkJoinPool pool;
+    private final int chunkSize; // 0 表示按并行度自动决定
+
+    public ParallelGraphLoader() {
+        this(ForkJoinPool.commonPool(), 0);
+    }
+
+    ParallelGraphLoader(ForkJoinPool pool, int chunkSize) {
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * 并行读取文件，生成邻接表结构的有向图
+     * @param file 文件路径
+     * @return 有向图
+     */
+    public Graph load(String file) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+            long[] bounds = split(channel);
+            List<ForkJoinTask<Chunk>> tasks = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                tasks.add(pool.submit(new ChunkTask(channel, bounds[i], bounds[i + 1])));
+            }
+            Graph graph = new AdjListGraph();
+            int last = -1; // 上一个非空块的最后一个单词（全局编号）
+            for (ForkJoinTask<Chunk> task : tasks) {
+                Chunk chunk;
+                try {
+                    chunk = task.join();
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                if (chunk.words.size() == 0) continue;
+                last = chunk.mergeInto(graph, last);
+            }
+            return graph;
+        }
+    }
+
+    /**
+     * 计算切分点，切分点移动到下一个非字母字节处
+     */
+    private long[] split(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long step = chunkSize > 0 ? chunkSize
+                : Math.min(MAX_CHUNK_SIZE, Math.max(MIN_CHUNK_SIZE, size / (pool.getParallelism() * 4L) + 1));
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer probe = ByteBuffer.allocate(256);
+        long position = step;
+        while (position < size) {
+            long boundary = position;
+            scan:
+            while (boundary < size) {
+                probe.clear();
+                int n = channel.read(probe, boundary);
+                if (n <= 0) break;
+                for (int i = 0; i < n; i++, boundary++) {
+                    if (!isLetter(probe.get(i))) break scan;
+                }
+            }
+            if (boundary >= size) break;
+            if (boundary - bounds.get(bounds.size() - 1) > MAX_CHUNK_SIZE) throw new IOException("Word too long near offset " + position);
+            bounds.add(boundary);
+            position = boundary + step;
+        }
+        bounds.add(size);
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static boolean isLetter(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z');
+    }
+
+    /**
+     * 单个块的统计结果，顶点使用块内编号
+     */
+    private static final class Chunk {
+        final CompactDictionary words = new CompactDictionary(); // 块内编号 <-> 单词（按首次出现顺序）
+        final LongIntHashMap edges = new LongIntHashMap();       // (a, b) -> 出现次数
+        int first = -1, last = -1;
+
+        void add(byte[] word, int length) {
+            int id = words.intern(word, 0, length);
+            if (last >= 0) edges.addTo(LongIntHashMap.key(last, id), 1);
+            else first = id;
+            last = id;
+        }
+
+        /**
+         * 将块内的顶点与边计数合并到全局图中
+         * @param previous 上一块最后一个单词的全局编号，-1 表示没有
+         * @return 本块最后一个单词的全局编号
+         */
+        int mergeInto(Graph graph, int previous) {
+            int[] global = new int[words.size()];
+            for (int i = 0; i < global.length; i++) {
+                String word = words.word(i);
+                int id = graph.getVertex(word);
+                if (id < 0) {
+                    graph.addVertex(word);
+                    id = graph.size() - 1;
+                }
+                global[i] = id;
+            }
+            if (previous >= 0) graph.addEdge(previous, global[first]);
+            edges.forEach((key, count) -> {
+                int a = global[(int) (key >>> 32)], b = global[(int) key];
+                graph.addEdge(a, b, graph.getEdge(a, b) + count);
+            });
+            return global[last];
+        }
+    }
+
+    private static final class ChunkTask extends RecursiveTask<Chunk> {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long start, end;
+
+        ChunkTask(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected Chunk compute() {
+            MappedByteBuffer buffer;
+            try {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            Chunk chunk = new Chunk();
+            byte[] word = new byte[32];
+            int length = 0;
+            int limit = buffer.limit();
+            for (int i = 0; i < limit; i++) {
+                byte b = buffer.get(i);
+                if (isLetter(b)) {
+                    if (length == word.length) word = Arrays.copyOf(word, length * 2);
+                    word[length++] = (byte) (b | 0x20); // ASCII 大写转小写
+                } else if (length > 0) {
+                    chunk.add(word, length);
+                    length = 0;
+                }
+            }
+            if (length > 0) chunk.add(word, length);
+            return chunk;
+        }
+    }
+}
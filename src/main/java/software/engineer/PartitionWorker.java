@@ -0,0 +1,241 @@
+package software.engineer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.StringJoiner;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 分区图的工作进程，保存按单词散列分到本分区的顶点及其出边
+ * 出边的终点可能属于其他分区，在本地图中只作为没有出边的占位顶点
+ * *********************
+ * 协议：每个请求一行，空格分隔，UTF-8；每个响应一行，出错时为 "ERR 原因"
+ *   LOAD n            之后 n 行，"E a b i" 为边 a -> b 权重 +1（a 属于本分区），"V b i" 为顶点 b，
+ *                     i 为 b 这次出现在全部文本中的位置                                -> OK
+ *   HAS a             a 是否为本分区的顶点                                           -> 1 / 0
+ *   OUT a             a 的出边                                                       -> b1 w1 b2 w2 ...
+ *   INTO c b1 b2 ...  b1 b2 ... 中存在到 c 的边的顶点（均属于本分区）及其第一次出现的位置 -> b1 i1 b2 i2 ...
+ *   WALK w seed a     从 a 随机游走，直到离开本分区、到达没有出边的顶点或本次重复一条边（w 为 1 时按权重采样）
+ *                     -> 经过的顶点（不含 a），没有出边时为空行
+ *   SIZE              -> 本分区的顶点数与边数
+ * 每个连接一个线程，LOAD 与查询之间用读写锁隔离
+ * *********************
+ * 单独运行：java -cp ... software.engineer.PartitionWorker 分区号 分区数 [端口]
+ * 启动后在标准输出打印 "PORT 端口"；标准输入结束（如父进程退出）时进程退出
+ */
+class PartitionWorker {
+    private final int partition;
+    private final int partitions;
+    private final AdjListGraph graph = new AdjListGraph();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private int vertexes; // 属于本分区的顶点数
+    private long[] positions = new long[16]; // 本地顶点编号 -> 第一次出现的位置（只记录属于本分区的顶点，其余为 -1）
+    private long edges;
+    private volatile RandomWalker uniform, weighted; // 第一次游走时建立，LOAD 后失效
+
+    PartitionWorker(int partition, int partitions) {
+        this.partition = partition;
+        this.partitions = partitions;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: PartitionWorker <partition> <partitions> [port]");
+            System.exit(2);
+        }
+        PartitionWorker worker = new PartitionWorker(Integer.parseInt(args[0]), Integer.parseInt(args[1]));
+        ServerSocket server = new ServerSocket(args.length > 2 ? Integer.parseInt(args[2]) : 0, 50, InetAddress.getLoopbackAddress());
+        System.out.println("PORT " + server.getLocalPort());
+        System.out.flush();
+        Thread watchdog = new Thread(() -> {
+            try (InputStream in = System.in) {
+                while (in.read() >= 0) {
+                    // 丢弃输入，只等待结束
+                }
+            } catch (IOException ignored) {
+            }
+            System.exit(0);
+        }, "stdin-watchdog");
+        watchdog.setDaemon(true);
+        watchdog.start();
+        worker.serve(server);
+    }
+
+    /**
+     * @return 单词所属的分区
+     */
+    static int partitionOf(String word, int partitions) {
+        return Math.floorMod(word.hashCode(), partitions);
+    }
+
+    private boolean owns(String word) {
+        return partitionOf(word, partitions) == partition;
+    }
+
+    /**
+     * 接受连接直到 server 关闭
+     */
+    void serve(ServerSocket server) throws IOException {
+        try (server) {
+            while (!server.isClosed()) {
+                Socket socket;
+                try {
+                    socket = server.accept();
+                } catch (IOException e) {
+                    if (server.isClosed()) return;
+                    throw e;
+                }
+                Thread thread = new Thread(() -> serve(socket), "partition-" + partition + "-connection");
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8), 1 << 16);
+             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), 1 << 16)) {
+            socket.setTcpNoDelay(true);
+            String line;
+            while ((line = in.readLine()) != null) {
+                String response;
+                try {
+                    response = handle(line.split(" "), in);
+                } catch (RuntimeException e) {
+                    response = "ERR " + e;
+                }
+                out.write(response);
+                out.newLine();
+                out.flush();
+            }
+        } catch (IOException ignored) {
+            // 连接断开
+        }
+    }
+
+    String handle(String[] request, BufferedReader in) throws IOException {
+        if (request[0].equals("LOAD")) return load(in, Integer.parseInt(request[1]));
+        lock.readLock().lock();
+        try {
+            return switch (request[0]) {
+                case "HAS" -> owns(request[1]) && graph.containsVertex(request[1]) ? "1" : "0";
+                case "OUT" -> out(request[1]);
+                case "INTO" -> into(request);
+                case "WALK" -> walk("1".equals(request[1]), Long.parseLong(request[2]), request[3]);
+                case "SIZE" -> vertexes + " " + edges;
+                default -> "ERR Unknown command: " + request[0];
+            };
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private String load(BufferedReader in, int count) throws IOException {
+        String[] lines = new String[count];
+        for (int i = 0; i < count; i++) {
+            lines[i] = in.readLine();
+            if (lines[i] == null) throw new IOException("Truncated LOAD request");
+        }
+        lock.writeLock().lock();
+        try {
+            for (String line : lines) {
+                String[] fields = line.split(" ");
+                int from = vertex(fields[1]);
+                if (fields[0].equals("E")) {
+                    int to = vertex(fields[2]);
+                    if (graph.getEdge(from, to) == 0) edges++;
+                    graph.addEdge(from, to);
+                    seen(to, fields[2], Long.parseLong(fields[3]));
+                } else {
+                    seen(from, fields[1], Long.parseLong(fields[2]));
+                }
+            }
+            uniform = weighted = null;
+            return "OK";
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int vertex(String word) {
+        int v = graph.getVertex(word);
+        if (v >= 0) return v;
+        graph.addVertex(word);
+        if (owns(word)) vertexes++;
+        v = graph.getVertex(word);
+        if (v == positions.length) positions = Arrays.copyOf(positions, v * 2);
+        positions[v] = -1;
+        return v;
+    }
+
+    /**
+     * 记录本分区的单词第一次出现的位置（同一分区的请求按文本顺序到达）
+     */
+    private void seen(int v, String word, long position) {
+        if (positions[v] < 0 && owns(word)) positions[v] = position;
+    }
+
+    private String out(String word) {
+        int v = graph.getVertex(word);
+        StringJoiner joiner = new StringJoiner(" ");
+        if (v >= 0) graph.forEachOutEdge(v, (from, to, weight) -> joiner.add(graph.getVertex(to)).add(Integer.toString(weight)));
+        return joiner.toString();
+    }
+
+    private String into(String[] request) {
+        int target = graph.getVertex(request[1]);
+        StringJoiner joiner = new StringJoiner(" ");
+        if (target < 0) return "";
+        for (int i = 2; i < request.length; i++) {
+            int v = graph.getVertex(request[i]);
+            if (v >= 0 && graph.getEdge(v, target) > 0) joiner.add(request[i]).add(Long.toString(positions[v]));
+        }
+        return joiner.toString();
+    }
+
+    private String walk(boolean byWeight, long seed, String start) {
+        int v = graph.getVertex(start);
+        StringJoiner joiner = new StringJoiner(" ");
+        if (v < 0) return "";
+        RandomWalker walker = walker(byWeight);
+        SplittableRandom random = new SplittableRandom(seed);
+        LongIntHashMap visited = new LongIntHashMap();
+        while (true) {
+            int next = walker.next(v, random);
+            if (next < 0) break;
+            String word = graph.getVertex(next);
+            joiner.add(word);
+            long edge = LongIntHashMap.key(v, next);
+            if (visited.get(edge) >= 0 || !owns(word)) break;
+            visited.put(edge, 1);
+            v = next;
+        }
+        return joiner.toString();
+    }
+
+    private RandomWalker walker(boolean byWeight) {
+        RandomWalker walker = byWeight ? weighted : uniform;
+        if (walker == null) {
+            synchronized (this) {
+                walker = byWeight ? weighted : uniform;
+                if (walker == null) {
+                    walker = new RandomWalker(graph, byWeight);
+                    if (byWeight) weighted = walker;
+                    else uniform = walker;
+                }
+            }
+        }
+        return walker;
+    }
+}
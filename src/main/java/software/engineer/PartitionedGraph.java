@@ -0,0 +1,404 @@
+package software.engineer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.random.RandomGenerator;
+
+/**
+ * 按单词散列分区、分布在多个 {@link PartitionWorker} 进程中的图（协调者）
+ * 每个单词属于 {@link PartitionWorker#partitionOf} 决定的分区，该分区的进程保存它的全部出边，
+ * 协调者本身不保存图，只在查询期间保存访问过的顶点
+ * *********************
+ * 建图：协调者分词，边 a -> b 发给 a 所在的分区，b 不在同一分区时另外发给 b 所在的分区登记顶点，按批发送；
+ *   每行附带 b 在全部文本中的位置，b 所在的分区记录它第一次出现的位置
+ * 桥接词：向 a 的分区取出边得到候选 b，再按分区分组询问哪些 b 有到 c 的边，共两轮请求；
+ *   结果按第一次出现的位置排序，与单机的图（顶点编号按出现顺序分配）一致
+ * 最短路径：协调者执行 Dijkstra，每弹出一个顶点向它的分区取出边
+ * 随机游走：从当前顶点的分区开始，工作进程在本分区内连续游走，离开本分区时把当前顶点交给下一个分区，
+ *   协调者检查整条路径上的重复边
+ * *********************
+ * 每个工作进程维护一组空闲连接，查询可以在多个线程中并行执行；建图期间不能查询
+ */
+class PartitionedGraph implements AutoCloseable {
+    private static final int LOAD_BATCH = 1 << 14;
+
+    private final Shard[] shards;
+    private final List<Process> processes;
+    private long position; // 已读取的单词数
+
+    /**
+     * 连接已经启动的工作进程
+     * @param addresses 第 i 个地址为分区 i 的工作进程
+     */
+    PartitionedGraph(List<InetSocketAddress> addresses) {
+        this(addresses, List.of());
+    }
+
+    private PartitionedGraph(List<InetSocketAddress> addresses, List<Process> processes) {
+        this.shards = new Shard[addresses.size()];
+        for (int i = 0; i < shards.length; i++) shards[i] = new Shard(addresses.get(i));
+        this.processes = processes;
+    }
+
+    /**
+     * 在本机启动 partitions 个工作进程（使用当前的 JVM 与 classpath），关闭时结束这些进程
+     */
+    static PartitionedGraph launch(int partitions) throws IOException {
+        if (partitions <= 0) throw new IllegalArgumentException("Invalid partition count: " + partitions);
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        List<Process> processes = new ArrayList<>();
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        try {
+            for (int i = 0; i < partitions; i++) {
+                processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                        PartitionWorker.class.getName(), Integer.toString(i), Integer.toString(partitions))
+                        .redirectError(ProcessBuilder.Redirect.INHERIT).start());
+            }
+            for (Process process : processes) {
+                BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+                String line = out.readLine();
+                if (line == null || !line.startsWith("PORT ")) throw new IOException("Partition worker failed to start: " + line);
+                addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(line.substring(5))));
+            }
+        } catch (IOException | RuntimeException e) {
+            for (Process process : processes) process.destroyForcibly();
+            throw e;
+        }
+        return new PartitionedGraph(addresses, processes);
+    }
+
+    public int partitions() {
+        return shards.length;
+    }
+
+    private Shard shard(String word) {
+        return shards[PartitionWorker.partitionOf(word, shards.length)];
+    }
+
+    /**
+     * 读取一个文本文件并加入图中
+     */
+    public void load(String file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(Paths.get(file), StandardCharsets.ISO_8859_1)) {
+            load(reader);
+        }
+    }
+
+    /**
+     * 读取一篇文本并加入图中，它的第一个单词不与之前文本的最后一个单词相连
+     */
+    public void load(Reader reader) throws IOException {
+        Metrics.timeIO(Metrics.Operation.BUILD, () -> {
+            List<List<String>> batches = new ArrayList<>();
+            for (int i = 0; i < shards.length; i++) batches.add(new ArrayList<>());
+            String[] previous = new String[1];
+            try {
+                WordTokenizer.tokenize(reader, word -> {
+                    int owner = PartitionWorker.partitionOf(word, shards.length);
+                    long at = position++;
+                    if (previous[0] != null) {
+                        int from = PartitionWorker.partitionOf(previous[0], shards.length);
+                        add(batches, from, "E " + previous[0] + " " + word + " " + at);
+                        if (from != owner) add(batches, owner, "V " + word + " " + at);
+                    } else {
+                        add(batches, owner, "V " + word + " " + at);
+                    }
+                    previous[0] = word;
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            for (int i = 0; i < shards.length; i++) {
+                if (!batches.get(i).isEmpty()) shards[i].call("LOAD " + batches.get(i).size(), batches.get(i));
+            }
+        });
+    }
+
+    private void add(List<List<String>> batches, int partition, String line) {
+        List<String> batch = batches.get(partition);
+        batch.add(line);
+        if (batch.size() < LOAD_BATCH) return;
+        try {
+            shards[partition].call("LOAD " + batch.size(), batch);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        batch.clear();
+    }
+
+    /**
+     * @return 各分区顶点数之和
+     */
+    public long size() throws IOException {
+        long size = 0;
+        for (Shard shard : shards) size += Long.parseLong(shard.call("SIZE").split(" ")[0]);
+        return size;
+    }
+
+    /**
+     * @return 各分区边数之和
+     */
+    public long edgeCount() throws IOException {
+        long edges = 0;
+        for (Shard shard : shards) edges += Long.parseLong(shard.call("SIZE").split(" ")[1]);
+        return edges;
+    }
+
+    public boolean containsVertex(String word) throws IOException {
+        return shard(word).call("HAS " + word).equals("1");
+    }
+
+    /**
+     * @return word 的出边终点 -> 权重（按插入顺序）
+     */
+    private Map<String, Integer> outEdges(String word) throws IOException {
+        String[] fields = split(shard(word).call("OUT " + word));
+        Map<String, Integer> edges = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < fields.length; i += 2) edges.put(fields[i], Integer.parseInt(fields[i + 1]));
+        return edges;
+    }
+
+    private static String[] split(String response) {
+        return response.isEmpty() ? new String[0] : response.split(" ");
+    }
+
+    /**
+     * 查询桥接词（两个单词都存在时）
+     * @return 桥接词，按第一次出现在文本中的顺序
+     */
+    public List<String> bridgeWords(String word1, String word2) throws IOException {
+        return Metrics.timeIO(Metrics.Operation.BRIDGE, () -> {
+            Set<String> candidates = outEdges(word1).keySet();
+            Map<Integer, StringJoiner> requests = new TreeMap<>(); // 分区 -> 询问该分区的候选
+            for (String b : candidates) {
+                requests.computeIfAbsent(PartitionWorker.partitionOf(b, shards.length),
+                        partition -> new StringJoiner(" ", "INTO " + word2 + " ", "")).add(b);
+            }
+            Map<String, Long> bridges = new HashMap<>(); // 桥接词 -> 第一次出现的位置
+            for (Map.Entry<Integer, StringJoiner> request : requests.entrySet()) {
+                String[] fields = split(shards[request.getKey()].call(request.getValue().toString()));
+                for (int i = 0; i + 1 < fields.length; i += 2) bridges.put(fields[i], Long.parseLong(fields[i + 1]));
+            }
+            List<String> results = new ArrayList<>(bridges.keySet());
+            results.sort(Comparator.comparing(bridges::get));
+            return results;
+        });
+    }
+
+    /**
+     * 两点间的一条最短路径
+     * @param vertexes 路径上的单词（含首尾），不可达时为空
+     * @param length 路径长度，不可达时为 -1
+     */
+    record Route(List<String> vertexes, int length) {
+        public boolean isReachable() {
+            return length >= 0;
+        }
+
+        /**
+         * 格式与 {@link Path#format} 相同
+         */
+        public String format(String source, String target) {
+            if (!isReachable()) return "(-1): " + source + " -x " + target + " 不可达";
+            return "(" + length + "): " + String.join("-->", vertexes);
+        }
+    }
+
+    /**
+     * 协调者上的 Dijkstra，按需向各分区取出边，找到 target 即停止
+     */
+    public Route shortestPath(String source, String target) throws IOException {
+        return Metrics.timeIO(Metrics.Operation.SHORTEST_PATH, () -> {
+            record Entry(String vertex, int distance) {
+            }
+            Map<String, Integer> distance = new HashMap<>();
+            Map<String, String> previous = new HashMap<>();
+            Set<String> done = new HashSet<>();
+            PriorityQueue<Entry> queue = new PriorityQueue<>(Comparator.comparingInt(Entry::distance));
+            distance.put(source, 0);
+            queue.add(new Entry(source, 0));
+            while (!queue.isEmpty()) {
+                Entry entry = queue.poll();
+                String u = entry.vertex();
+                if (!done.add(u)) continue;
+                if (u.equals(target)) {
+                    LinkedList<String> path = new LinkedList<>();
+                    for (String v = target; v != null; v = previous.get(v)) path.addFirst(v);
+                    return new Route(path, entry.distance());
+                }
+                for (Map.Entry<String, Integer> edge : outEdges(u).entrySet()) {
+                    int d = entry.distance() + edge.getValue();
+                    Integer old = distance.get(edge.getKey());
+                    if (old == null || d < old) {
+                        distance.put(edge.getKey(), d);
+                        previous.put(edge.getKey(), u);
+                        queue.add(new Entry(edge.getKey(), d));
+                    }
+                }
+            }
+            return new Route(List.of(), -1);
+        });
+    }
+
+    /**
+     * 从 start 随机游走，直到经过一条已经走过的边（该边计入路径）或到达没有出边的顶点
+     * @param weighted 是否按边权重采样
+     * @return 经过的单词（含起点）
+     */
+    public List<String> randomWalk(String start, boolean weighted, RandomGenerator random) throws IOException {
+        return Metrics.timeIO(Metrics.Operation.WALK, () -> {
+            List<String> walk = new ArrayList<>();
+            walk.add(start);
+            Set<String> edges = new HashSet<>();
+            String current = start;
+            while (true) {
+                String[] steps = split(shard(current).call("WALK " + (weighted ? 1 : 0) + " " + random.nextLong() + " " + current));
+                if (steps.length == 0) return walk;
+                for (String next : steps) {
+                    walk.add(next);
+                    if (!edges.add(current + " " + next)) return walk;
+                    current = next;
+                }
+            }
+        });
+    }
+
+    /**
+     * 执行一个查询，格式与 {@link QueryBatch} 相同：
+     *   bridge word1 word2、path word1 word2，以及 walk word（随机游走）
+     * @param weighted 随机游走是否按边权重采样
+     * @return 单行结果
+     */
+    String execute(String query, boolean weighted, RandomGenerator random) {
+        String[] words = query.split("\\s+");
+        try {
+            switch (words[0].toLowerCase()) {
+                case "bridge" -> {
+                    if (words.length != 3) break;
+                    String word1 = words[1].toLowerCase(), word2 = words[2].toLowerCase();
+                    if (!containsVertex(word1) || !containsVertex(word2))
+                        return "No \"" + word1 + "\" or \"" + word2 + "\" in the graph!";
+                    return App.formatBridgeWords(word1, word2, bridgeWords(word1, word2));
+                }
+                case "path" -> {
+                    if (words.length != 3) break;
+                    String word1 = words[1].toLowerCase(), word2 = words[2].toLowerCase();
+                    if (!containsVertex(word1)) return "\"" + word1 + "\" is not exist";
+                    if (!containsVertex(word2)) return "\"" + word2 + "\" is not exist";
+                    return shortestPath(word1, word2).format(word1, word2);
+                }
+                case "walk" -> {
+                    if (words.length != 2) break;
+                    String word = words[1].toLowerCase();
+                    if (!containsVertex(word)) return "\"" + word + "\" is not exist";
+                    return String.join("-->", randomWalk(word, weighted, random));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return "Invalid query: " + query;
+    }
+
+    @Override
+    public void close() {
+        for (Shard shard : shards) shard.close();
+        for (Process process : processes) {
+            try {
+                process.getOutputStream().close(); // 工作进程在标准输入结束时退出
+                if (!process.waitFor(5, TimeUnit.SECONDS)) process.destroyForcibly();
+            } catch (IOException e) {
+                process.destroyForcibly();
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 一个分区的工作进程及其空闲连接
+     */
+    private static final class Shard {
+        private final InetSocketAddress address;
+        private final Queue<Connection> idle = new ConcurrentLinkedQueue<>();
+
+        Shard(InetSocketAddress address) {
+            this.address = address;
+        }
+
+        String call(String request) throws IOException {
+            return call(request, List.of());
+        }
+
+        /**
+         * 发送一个请求（request 之后跟随 lines 中的各行）并等待响应
+         */
+        String call(String request, List<String> lines) throws IOException {
+            Connection connection = idle.poll();
+            if (connection == null) connection = new Connection(address);
+            String response;
+            try {
+                response = connection.call(request, lines);
+            } catch (IOException e) {
+                connection.close();
+                throw e;
+            }
+            idle.add(connection);
+            if (response.startsWith("ERR ")) throw new IOException("Partition worker " + address + ": " + response.substring(4));
+            return response;
+        }
+
+        void close() {
+            Connection connection;
+            while ((connection = idle.poll()) != null) connection.close();
+        }
+    }
+
+    private static final class Connection {
+        private final Socket socket;
+        private final BufferedReader in;
+        private final BufferedWriter out;
+
+        Connection(InetSocketAddress address) throws IOException {
+            this.socket = new Socket(address.getAddress(), address.getPort());
+            socket.setTcpNoDelay(true);
+            this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8), 1 << 16);
+            this.out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), 1 << 16);
+        }
+
+        String call(String request, List<String> lines) throws IOException {
+            out.write(request);
+            out.newLine();
+            for (String line : lines) {
+                out.write(line);
+                out.newLine();
+            }
+            out.flush();
+            String response = in.readLine();
+            if (response == null) throw new IOException("Connection closed by partition worker");
+            return response;
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package software.engineer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * 两点间的一条路径
+ * @param vertexes 路径上的顶点编号（含首尾），不可达时为空数组
+ * @param length 路径长度（边权之和），不可达时为 -1
+ */
+record Path(int[] vertexes, int length) {
+    static final Path UNREACHABLE = new Path(new int[0], -1);
+
+    public boolean isReachable() {
+        return length >= 0;
+    }
+
+    /**
+     * @return 路径上的边列表，用于在图中突出显示
+     */
+    public List<Edge> edges(Graph graph) {
+        List<Edge> edges = new ArrayList<>();
+        for (int i = 1; i < vertexes.length; i++) {
+            edges.add(new Edge(graph.getVertex(vertexes[i - 1]), graph.getVertex(vertexes[i]), graph.getEdge(vertexes[i - 1], vertexes[i])));
+        }
+        return edges;
+    }
+
+    /**
+     * 格式化为 "(长度): a-->b-->c"，不可达时为 "(-1): a -x c 不可达"
+     */
+    public String format(Graph graph, int source, int target) {
+        if (!isReachable())
+            return "(-1): " + graph.getVertex(source) + " -x " + graph.getVertex(target) + " 不可达";
+        StringJoiner joiner = new StringJoiner("-->", "(" + length + "): ", "");
+        for (int v : vertexes) joiner.add(graph.getVertex(v));
+        return joiner.toString();
+    }
+}
@@ -0,0 +1,154 @@
+package software.engineer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.StringJoiner;
+import java.util.stream.IntStream;
+
+/**
+ * 批量并行查询
+ * 每行一个查询，结果按输入顺序每行一个输出：
+ *   bridge word1 word2   查询桥接词
+ *   text 一行文本          根据桥接词生成新文本
+ *   path word1 word2     两点最短路径
+ *   path word1           单源最短路径（各条路径以 "; " 分隔）
+ * 空行与 # 开头的行忽略；查询按块并行执行，生成新文本使用的随机数与 {@link WalkBatch} 一样按序号从同一个种子拆分，
+ * 因此相同种子的结果可复现
+ * 执行期间图不能被修改；也可以通过 {@link Engine} 交给其他查询实现（如 {@link PartitionedGraph}）执行
+ */
+class QueryBatch {
+    private static final int BLOCK_SIZE = 4096;
+
+    private final Graph graph;
+    private final BridgeIndex bridgeIndex;
+    private final DistanceTable distanceTable; // 可以为 null
+    private final Engine engine;
+
+    /**
+     * 执行单个查询，可能被多个线程同时调用
+     */
+    interface Engine {
+        String execute(String query, SplittableRandom random);
+    }
+
+    public QueryBatch(Graph graph, BridgeIndex bridgeIndex, DistanceTable distanceTable) {
+        this.graph = graph;
+        this.bridgeIndex = bridgeIndex;
+        this.distanceTable = distanceTable;
+        this.engine = this::execute;
+    }
+
+    public QueryBatch(Engine engine) {
+        this.graph = null;
+        this.bridgeIndex = null;
+        this.distanceTable = null;
+        this.engine = engine;
+    }
+
+    /**
+     * 执行 in 中的所有查询
+     * @param in 查询（内部套一层缓冲）
+     * @param seed 随机种子
+     * @param out 输出（内部套一层缓冲）
+     * @return 统计信息
+     */
+    public Result run(Reader in, long seed, Writer out) throws IOException {
+        long begin = System.nanoTime();
+        long count = 0;
+        SplittableRandom root = new SplittableRandom(seed);
+        BufferedReader reader = new BufferedReader(in, 1 << 16);
+        BufferedWriter writer = new BufferedWriter(out, 1 << 16);
+        String[] queries = new String[BLOCK_SIZE];
+        SplittableRandom[] randoms = new SplittableRandom[BLOCK_SIZE];
+        String[] lines = new String[BLOCK_SIZE];
+        boolean eof = false;
+        while (!eof) {
+            int block = 0;
+            while (block < BLOCK_SIZE) {
+                String line = reader.readLine();
+                if (line == null) {
+                    eof = true;
+                    break;
+                }
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                queries[block] = line;
+                randoms[block++] = root.split();
+            }
+            IntStream.range(0, block).parallel().forEach(i -> lines[i] = engine.execute(queries[i], randoms[i]));
+            for (int i = 0; i < block; i++) {
+                writer.write(lines[i]);
+                writer.newLine();
+            }
+            count += block;
+        }
+        writer.flush();
+        return new Result(count, System.nanoTime() - begin);
+    }
+
+    /**
+     * 执行一个查询
+     * @return 单行结果
+     */
+    String execute(String query, SplittableRandom random) {
+        String[] words = query.split("\\s+");
+        switch (words[0].toLowerCase()) {
+            case "bridge" -> {
+                if (words.length != 3) break;
+                String word1 = words[1].toLowerCase(), word2 = words[2].toLowerCase();
+                if (!graph.containsVertex(word1) || !graph.containsVertex(word2))
+                    return "No \"" + word1 + "\" or \"" + word2 + "\" in the graph!";
+                return App.formatBridgeWords(word1, word2,
+                        Metrics.time(Metrics.Operation.BRIDGE, () -> bridgeIndex.bridges(word1, word2)));
+            }
+            case "text" -> {
+                String text = query.substring(words[0].length()).strip();
+                return App.generateNewText(bridgeIndex, text, random).strip();
+            }
+            case "path" -> {
+                if (words.length == 2) return shortestPaths(words[1].toLowerCase());
+                if (words.length == 3) return shortestPath(words[1].toLowerCase(), words[2].toLowerCase());
+            }
+        }
+        return "Invalid query: " + query;
+    }
+
+    private String shortestPath(String word1, String word2) {
+        int source = graph.getVertex(word1);
+        if (source < 0) return "\"" + word1 + "\" is not exist";
+        int target = graph.getVertex(word2);
+        if (target < 0) return "\"" + word2 + "\" is not exist";
+        Path path = distanceTable != null ? distanceTable.path(source, target) : graph.shortestPath(source, target);
+        return path.format(graph, source, target);
+    }
+
+    private String shortestPaths(String word) {
+        int source = graph.getVertex(word);
+        if (source < 0) return "\"" + word + "\" is not exist";
+        StringJoiner joiner = new StringJoiner("; ");
+        if (distanceTable != null) {
+            for (int t = 0; t < graph.size(); t++) joiner.add(distanceTable.path(source, t).format(graph, source, t));
+        } else {
+            ShortestPaths paths = ShortestPaths.compute(graph, source);
+            for (int t = 0; t < paths.size(); t++) joiner.add(paths.format(graph, t));
+        }
+        return joiner.toString();
+    }
+
+    /**
+     * @param queries 查询数
+     * @param nanos 耗时（纳秒）
+     */
+    record Result(long queries, long nanos) {
+        @Override
+        public String toString() {
+            double seconds = nanos / 1e9;
+            return String.format("%d queries in %.3f s (%.0f queries/s)", queries, seconds, queries / seconds);
+        }
+    }
+}
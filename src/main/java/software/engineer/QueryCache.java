@@ -0,0 +1,113 @@
+package software.engineer;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 查询结果的 LRU 缓存
+ * 同时限制条目数与估算的内存占用，超出任一上限时淘汰最久未使用的条目；
+ * 图改变后调用 {@link #invalidate()} 清空（每次追加文本调用一次，而不是每个单词），保证不会返回过期结果
+ * 所有方法线程安全
+ * @param <K> 查询参数
+ * @param <V> 查询结果（不可变）
+ */
+class QueryCache<K, V> {
+    /**
+     * 估算一个条目占用的字节数
+     */
+    interface Weigher<K, V> {
+        long weigh(K key, V value);
+    }
+
+    private final String name;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final Weigher<K, V> weigher;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long generation; // 每次清空时递增，丢弃在清空之前开始计算的结果
+    private long hits, misses, evictions;
+
+    private record Entry<V>(V value, long bytes) {
+    }
+
+    /**
+     * @param name 名称（用于统计输出）
+     * @param maxEntries 最大条目数，0 表示不缓存
+     * @param maxBytes 最大估算内存占用（字节）
+     * @param weigher 条目大小的估算方法
+     */
+    public QueryCache(String name, int maxEntries, long maxBytes, Weigher<K, V> weigher) {
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.weigher = weigher;
+    }
+
+    /**
+     * 查询缓存，未命中时调用 loader 计算并放入缓存（loader 在锁外执行）
+     */
+    public V get(K key, Function<K, V> loader) {
+        long started;
+        synchronized (this) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                hits++;
+                return entry.value();
+            }
+            misses++;
+            started = generation;
+        }
+        V value = loader.apply(key);
+        synchronized (this) {
+            if (started == generation) put(key, value);
+        }
+        return value;
+    }
+
+    public synchronized void put(K key, V value) {
+        if (maxEntries <= 0) return;
+        long size = weigher.weigh(key, value);
+        if (size > maxBytes) return;
+        Entry<V> old = entries.put(key, new Entry<>(value, size));
+        if (old != null) bytes -= old.bytes();
+        bytes += size;
+        Iterator<Map.Entry<K, Entry<V>>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxEntries || bytes > maxBytes) {
+            bytes -= eldest.next().getValue().bytes();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * 清空缓存（图改变时调用）
+     */
+    public synchronized void invalidate() {
+        generation++;
+        if (entries.isEmpty()) return;
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    @Override
+    public synchronized String toString() {
+        long total = hits + misses;
+        return String.format("%s cache: %d entries (~%d KB), %d hits, %d misses (%.1f%% hit rate), %d evictions",
+                name, entries.size(), bytes / 1024, hits, misses, total == 0 ? 0.0 : 100.0 * hits / total, evictions);
+    }
+}
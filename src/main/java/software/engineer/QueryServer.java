@@ -0,0 +1,207 @@
+package software.engineer;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本地 HTTP 查询服务
+ * 启动时将图复制为不可修改的 {@link CsrGraph} 并建立桥接词索引，之后所有请求共享这份只读快照，无需加锁
+ * *********************
+ * 接口（GET，参数需 URL 编码，返回 JSON）：
+ *   /bridge?from=a&to=b   {"from":"a","to":"b","bridges":["x"]}
+ *   /text?text=...&seed=1 {"text":"..."}（seed 可选）
+ *   /path?from=a&to=b     {"from":"a","to":"b","length":3,"path":["a","x","b"]}，不可达时 length 为 -1
+ *   /path?from=a          {"from":"a","paths":[{"to":"b","length":3,"path":[...]}, ...]}
+ * 单词不在图中时返回 404，参数缺失时返回 400
+ * *********************
+ * 请求在固定大小的线程池中处理（JDK 17 中虚拟线程尚未正式提供）
+ */
+class QueryServer {
+    private final Graph graph;
+    private final BridgeIndex bridgeIndex;
+    private final DistanceTable distanceTable; // 可以为 null
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * @param graph 有向图（不是 CsrGraph 时复制一份快照，之后对原图的修改不影响服务；
+     *              ConcurrentGraph 可以在其他线程写入的同时取得一致的快照）
+     * @param distanceTable 全源最短路径表，可以为 null
+     * @param port 端口，0 表示自动分配
+     * @param threads 处理请求的线程数
+     */
+    public QueryServer(Graph graph, DistanceTable distanceTable, int port, int threads) throws IOException {
+        this.graph = graph instanceof CsrGraph ? graph
+                : graph instanceof ConcurrentGraph concurrent ? concurrent.snapshot() : CsrGraph.copyOf(graph);
+        this.bridgeIndex = new BridgeIndex(this.graph);
+        this.distanceTable = distanceTable;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        this.executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.createContext("/bridge", exchange -> handle(exchange, this::bridge));
+        server.createContext("/text", exchange -> handle(exchange, this::text));
+        server.createContext("/path", exchange -> handle(exchange, this::path));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * 请求处理失败时对应的状态码
+     */
+    private static class HttpError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private interface Handler {
+        String handle(Map<String, String> params);
+    }
+
+    private static void handle(HttpExchange exchange, Handler handler) throws IOException {
+        int status = 200;
+        String body;
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) throw new HttpError(405, "Method not allowed");
+            body = handler.handle(parseQuery(exchange.getRequestURI().getRawQuery()));
+        } catch (HttpError e) {
+            status = e.status;
+            body = "{\"error\":" + quote(e.getMessage()) + "}";
+        } catch (RuntimeException e) {
+            status = 500;
+            body = "{\"error\":" + quote(String.valueOf(e)) + "}";
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null || query.isEmpty()) return params;
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static String require(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isEmpty()) throw new HttpError(400, "Missing parameter: " + name);
+        return value;
+    }
+
+    private int vertex(String word) {
+        int v = graph.getVertex(word);
+        if (v < 0) throw new HttpError(404, "\"" + word + "\" is not exist");
+        return v;
+    }
+
+    private String bridge(Map<String, String> params) {
+        String from = require(params, "from").toLowerCase(), to = require(params, "to").toLowerCase();
+        StringJoiner bridges = new StringJoiner(",", "[", "]");
+        int a = vertex(from), c = vertex(to);
+        for (int b : Metrics.time(Metrics.Operation.BRIDGE, () -> bridgeIndex.bridges(a, c))) bridges.add(quote(graph.getVertex(b)));
+        return "{\"from\":" + quote(from) + ",\"to\":" + quote(to) + ",\"bridges\":" + bridges + "}";
+    }
+
+    private String text(Map<String, String> params) {
+        String text = require(params, "text");
+        String seed = params.get("seed");
+        SplittableRandom random;
+        try {
+            random = seed == null ? new SplittableRandom() : new SplittableRandom(Long.parseLong(seed));
+        } catch (NumberFormatException e) {
+            throw new HttpError(400, "Invalid seed: " + seed);
+        }
+        return "{\"text\":" + quote(App.generateNewText(bridgeIndex, text, random).strip()) + "}";
+    }
+
+    private String path(Map<String, String> params) {
+        String from = require(params, "from").toLowerCase();
+        int source = vertex(from);
+        String to = params.get("to");
+        if (to != null && !to.isEmpty()) {
+            to = to.toLowerCase();
+            int target = vertex(to);
+            Path path = distanceTable != null ? distanceTable.path(source, target) : graph.shortestPath(source, target);
+            return "{\"from\":" + quote(from) + ",\"to\":" + quote(to) + "," + path(path) + "}";
+        }
+        StringJoiner paths = new StringJoiner(",", "[", "]");
+        ShortestPaths all = distanceTable != null ? null : ShortestPaths.compute(graph, source);
+        for (int t = 0; t < graph.size(); t++) {
+            Path path = all != null ? all.path(t) : distanceTable.path(source, t);
+            if (!path.isReachable()) continue;
+            paths.add("{\"to\":" + quote(graph.getVertex(t)) + "," + path(path) + "}");
+        }
+        return "{\"from\":" + quote(from) + ",\"paths\":" + paths + "}";
+    }
+
+    private String path(Path path) {
+        StringJoiner vertexes = new StringJoiner(",", "[", "]");
+        for (int v : path.vertexes()) vertexes.add(quote(graph.getVertex(v)));
+        return "\"length\":" + path.length() + ",\"path\":" + vertexes;
+    }
+
+    /**
+     * JSON 字符串
+     */
+    static String quote(String s) {
+        StringBuilder json = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) json.append(String.format("\\u%04x", (int) c));
+                    else json.append(c);
+                }
+            }
+        }
+        return json.append('"').toString();
+    }
+}
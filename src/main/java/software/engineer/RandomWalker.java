@@ -0,0 +1,200 @@
+package software.engineer;
+
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+import java.util.random.RandomGenerator;
+
+/**
+ * 无界面的随机游走引擎
+ * 预先为每个顶点的出边建立别名表（Alias Method），每一步 O(1) 采样下一个顶点：
+ * 不加权时各条出边等概率，加权时按边权重（相邻出现次数）成比例
+ * 游走在以下情况结束：经过一条已经走过的边（该边计入路径）、到达没有出边的顶点、被外部取消
+ */
+class RandomWalker {
+    enum StopReason {
+        REPEATED_EDGE, // 出现第一条重复的边
+        DEAD_END,      // 当前顶点不存在出边
+        CANCELLED      // 被外部取消（如用户按下 i）
+    }
+
+    private final Graph graph;
+    private final int[] offsets;   // 顶点 v 的出边在 [offsets[v], offsets[v+1]) 中
+    private final int[] targets;
+    private final double[] prob;   // 别名表：以 prob[k] 的概率取 targets[k]，否则取 targets[alias[k]]
+    private final int[] alias;
+
+    /**
+     * @param graph 有向图（建立别名表后图的修改不会反映到游走中）
+     * @param weighted 是否按边权重采样
+     */
+    public RandomWalker(Graph graph, boolean weighted) {
+        this.graph = graph;
+        int n = graph.size();
+        int[] offsets = new int[n + 1];
+        graph.forEachEdge((from, to, weight) -> offsets[from + 1]++);
+        for (int v = 0; v < n; v++) offsets[v + 1] += offsets[v];
+        int m = offsets[n];
+        int[] targets = new int[m];
+        int[] edgeWeights = new int[m];
+        int[] fill = Arrays.copyOf(offsets, n);
+        graph.forEachEdge((from, to, weight) -> {
+            int k = fill[from]++;
+            targets[k] = to;
+            edgeWeights[k] = weight;
+        });
+        this.offsets = offsets;
+        this.targets = targets;
+        this.prob = new double[m];
+        this.alias = new int[m];
+        double[] weights = new double[0];
+        int[] small = new int[0], large = new int[0];
+        for (int v = 0; v < n; v++) {
+            int d = offsets[v + 1] - offsets[v], base = offsets[v];
+            if (d > weights.length) {
+                weights = new double[d];
+                small = new int[d];
+                large = new int[d];
+            }
+            double sum = 0;
+            for (int k = 0; k < d; k++) {
+                weights[k] = weighted ? edgeWeights[base + k] : 1;
+                sum += weights[k];
+            }
+            buildAlias(base, d, weights, sum, small, large);
+        }
+    }
+
+    /**
+     * Vose 算法建立 [base, base+d) 区间的别名表
+     */
+    private void buildAlias(int base, int d, double[] weights, double sum, int[] small, int[] large) {
+        int s = 0, l = 0;
+        for (int k = 0; k < d; k++) {
+            weights[k] = weights[k] * d / sum;
+            if (weights[k] < 1) small[s++] = k;
+            else large[l++] = k;
+        }
+        while (s > 0 && l > 0) {
+            int less = small[--s], more = large[--l];
+            prob[base + less] = weights[less];
+            alias[base + less] = more;
+            weights[more] += weights[less] - 1;
+            if (weights[more] < 1) small[s++] = more;
+            else large[l++] = more;
+        }
+        while (l > 0) prob[base + large[--l]] = 1;
+        while (s > 0) prob[base + small[--s]] = 1; // 浮点误差
+    }
+
+    public Graph getGraph() {
+        return graph;
+    }
+
+    /**
+     * 从 v 出发随机走一步
+     * @return 下一个顶点编号，v 没有出边时返回 -1
+     */
+    public int next(int v, RandomGenerator random) {
+        int base = offsets[v], d = offsets[v + 1] - base;
+        if (d == 0) return -1;
+        int k = base + random.nextInt(d);
+        return random.nextDouble() < prob[k] ? targets[k] : targets[base + alias[k]];
+    }
+
+    /**
+     * 开始一次游走，由调用者逐步推进（供交互模式使用）
+     */
+    public Walk start(int v, RandomGenerator random) {
+        return new Walk(v, random);
+    }
+
+    /**
+     * 从 v 出发一直走到结束
+     * @param cancelled 每一步之前检查，返回 true 时结束
+     */
+    public Walk walk(int v, RandomGenerator random, BooleanSupplier cancelled) {
+        return Metrics.time(Metrics.Operation.WALK, () -> {
+            Walk walk = start(v, random);
+            while (!walk.isStopped()) {
+                if (cancelled.getAsBoolean()) walk.cancel();
+                else walk.step();
+            }
+            return walk;
+        });
+    }
+
+    /**
+     * 一次随机游走的状态
+     */
+    class Walk {
+        private final RandomGenerator random;
+        private final LongIntHashMap edges = new LongIntHashMap(); // 已经走过的边
+        private int[] vertexes = new int[16];
+        private int length;
+        private StopReason reason;
+
+        private Walk(int start, RandomGenerator random) {
+            this.random = random;
+            this.vertexes[length++] = start;
+        }
+
+        /**
+         * 走一步
+         * @return 新到达的顶点，游走已结束时返回 -1
+         */
+        public int step() {
+            if (reason != null) return -1;
+            int v = current();
+            int next = next(v, random);
+            if (next < 0) {
+                reason = StopReason.DEAD_END;
+                return -1;
+            }
+            if (length == vertexes.length) vertexes = Arrays.copyOf(vertexes, length * 2);
+            vertexes[length++] = next;
+            long edge = LongIntHashMap.key(v, next);
+            if (edges.get(edge) >= 0) reason = StopReason.REPEATED_EDGE;
+            else edges.put(edge, 1);
+            return next;
+        }
+
+        public void cancel() {
+            if (reason == null) reason = StopReason.CANCELLED;
+        }
+
+        public boolean isStopped() {
+            return reason != null;
+        }
+
+        /**
+         * @return 结束原因，尚未结束时为 null
+         */
+        public StopReason reason() {
+            return reason;
+        }
+
+        public int current() {
+            return vertexes[length - 1];
+        }
+
+        public int length() {
+            return length;
+        }
+
+        /**
+         * @return 经过的顶点编号（含起点）
+         */
+        public int[] vertexes() {
+            return Arrays.copyOf(vertexes, length);
+        }
+
+        /**
+         * 格式化为 "a-->b-->c"
+         */
+        public String format() {
+            StringBuilder path = new StringBuilder(graph.getVertex(vertexes[0]));
+            for (int i = 1; i < length; i++) path.append("-->").append(graph.getVertex(vertexes[i]));
+            return path.toString();
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package software.engineer;
+
+import java.util.Arrays;
+
+/**
+ * 单源最短路径结果
+ * 只保存距离数组 dist 与前驱数组 pred，路径在查询时由前驱数组回溯得到
+ */
+class ShortestPaths {
+    static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private final int source;
+    private final int[] dist;
+    private final int[] pred;
+
+    ShortestPaths(int source, int[] dist, int[] pred) {
+        this.source = source;
+        this.dist = dist;
+        this.pred = pred;
+    }
+
+    /**
+     * 基于二叉堆的 Dijkstra 算法，只有权重大于 0 的边视为存在
+     * @param graph 有向图
+     * @param source 源点编号
+     * @return 最短路径结果
+     */
+    static ShortestPaths compute(Graph graph, int source) {
+        return Metrics.time(Metrics.Operation.DIJKSTRA, () -> {
+            int n = graph.size();
+            int[] dist = new int[n];
+            int[] pred = new int[n];
+            Arrays.fill(dist, UNREACHABLE);
+            Arrays.fill(pred, -1);
+            dist[source] = 0;
+            IntMinHeap heap = new IntMinHeap(n);
+            EdgeVisitor relax = relax(dist, pred, heap);
+            heap.push(source, 0);
+            while (!heap.isEmpty()) graph.forEachOutEdge(heap.pop(), relax);
+            return new ShortestPaths(source, dist, pred);
+        });
+    }
+
+    public int source() {
+        return source;
+    }
+
+    public int size() {
+        return dist.length;
+    }
+
+    /* 供 DistanceTable 直接写出，调用者不得修改 */
+    int[] distances() {
+        return dist;
+    }
+
+    int[] predecessors() {
+        return pred;
+    }
+
+    public boolean isReachable(int target) {
+        return dist[target] != UNREACHABLE;
+    }
+
+    /**
+     * @return 源点到 target 的路径长度，不可达时返回 -1
+     */
+    public int distance(int target) {
+        return isReachable(target) ? dist[target] : -1;
+    }
+
+    /**
+     * 回溯前驱数组得到源点到 target 的路径
+     */
+    public Path path(int target) {
+        if (!isReachable(target)) return Path.UNREACHABLE;
+        return new Path(trace(pred, source, target), dist[target]);
+    }
+
+    /**
+     * 格式化为 "(长度): a-->b-->c"，不可达时为 "(-1): a -x c 不可达"
+     */
+    public String format(Graph graph, int target) {
+        return path(target).format(graph, source, target);
+    }
+
+    /**
+     * 点对点最短路径：单向 Dijkstra，target 出堆（距离确定）后立即结束
+     * @param graph 有向图
+     * @param source 起点编号
+     * @param target 终点编号
+     * @return 最短路径
+     */
+    static Path pointToPoint(Graph graph, int source, int target) {
+        return Metrics.time(Metrics.Operation.SHORTEST_PATH, () -> {
+            int n = graph.size();
+            int[] dist = new int[n];
+            int[] pred = new int[n];
+            Arrays.fill(dist, UNREACHABLE);
+            dist[source] = 0;
+            pred[source] = -1;
+            IntMinHeap heap = new IntMinHeap(n);
+            EdgeVisitor relax = relax(dist, pred, heap);
+            heap.push(source, 0);
+            while (!heap.isEmpty()) {
+                int u = heap.pop();
+                if (u == target) return new Path(trace(pred, source, target), dist[target]);
+                graph.forEachOutEdge(u, relax);
+            }
+            return Path.UNREACHABLE;
+        });
+    }
+
+    /**
+     * 松弛 u -> v：每次搜索只创建一个访问者，遍历出边时不再分配对象
+     */
+    private static EdgeVisitor relax(int[] dist, int[] pred, IntMinHeap heap) {
+        return (u, v, weight) -> {
+            int d = dist[u] + weight;
+            if (d < dist[v]) {
+                dist[v] = d;
+                pred[v] = u;
+                heap.push(v, d);
+            }
+        };
+    }
+
+    /**
+     * 点对点最短路径：双向 Dijkstra
+     * 正向沿出边从 source 扩展，反向沿入边（{@link Graph#forEachInEdge(int, EdgeVisitor)}）从 target 扩展，
+     * 每次扩展堆顶较小的一侧，当两侧堆顶之和不小于当前最优值时结束
+     * @param graph 有向图
+     * @param source 起点编号
+     * @param target 终点编号
+     * @return 最短路径
+     */
+    static Path bidirectional(Graph graph, int source, int target) {
+        return Metrics.time(Metrics.Operation.SHORTEST_PATH, () -> {
+            if (source == target) return new Path(new int[]{source}, 0);
+            return new Bidirectional(graph, source, target).search();
+        });
+    }
+
+    /**
+     * 双向 Dijkstra 的搜索状态，两侧的松弛操作各作为一个访问者，每次搜索只创建一次
+     */
+    private static final class Bidirectional {
+        private final Graph graph;
+        private final int source, target;
+        private final int[] distF, distB;
+        private final int[] predF, succB;
+        private final IntMinHeap forward, backward;
+        private final EdgeVisitor relaxForward = this::relaxForward, relaxBackward = this::relaxBackward;
+        private int best = UNREACHABLE, meetFrom = -1, meetTo = -1; // 最优路径经过的连接边 meetFrom -> meetTo
+
+        Bidirectional(Graph graph, int source, int target) {
+            int n = graph.size();
+            this.graph = graph;
+            this.source = source;
+            this.target = target;
+            this.distF = new int[n];
+            this.distB = new int[n];
+            this.predF = new int[n];
+            this.succB = new int[n];
+            Arrays.fill(distF, UNREACHABLE);
+            Arrays.fill(distB, UNREACHABLE);
+            distF[source] = 0;
+            distB[target] = 0;
+            predF[source] = -1;
+            succB[target] = -1;
+            this.forward = new IntMinHeap(n);
+            this.backward = new IntMinHeap(n);
+            forward.push(source, 0);
+            backward.push(target, 0);
+        }
+
+        Path search() {
+            while (!forward.isEmpty() && !backward.isEmpty()) {
+                if ((long) forward.peekKey() + backward.peekKey() >= best) break;
+                if (forward.peekKey() <= backward.peekKey()) graph.forEachOutEdge(forward.pop(), relaxForward);
+                else graph.forEachInEdge(backward.pop(), relaxBackward);
+            }
+            if (best == UNREACHABLE) return Path.UNREACHABLE;
+
+            int[] head = trace(predF, source, meetFrom);
+            int length = head.length;
+            for (int v = meetTo; v != -1; v = succB[v]) length++;
+            int[] path = Arrays.copyOf(head, length);
+            for (int v = meetTo, i = head.length; v != -1; v = succB[v], i++) path[i] = v;
+            return new Path(path, best);
+        }
+
+        /**
+         * 正向扩展 u 的出边 u -> v
+         */
+        private void relaxForward(int u, int v, int weight) {
+            int d = distF[u] + weight;
+            if (d < distF[v]) {
+                distF[v] = d;
+                predF[v] = u;
+                forward.push(v, d);
+            }
+            if (distB[v] != UNREACHABLE && d + distB[v] < best) {
+                best = d + distB[v];
+                meetFrom = u;
+                meetTo = v;
+            }
+        }
+
+        /**
+         * 反向扩展 u 的入边 p -> u
+         */
+        private void relaxBackward(int p, int u, int weight) {
+            int d = distB[u] + weight;
+            if (d < distB[p]) {
+                distB[p] = d;
+                succB[p] = u;
+                backward.push(p, d);
+            }
+            if (distF[p] != UNREACHABLE && distF[p] + d < best) {
+                best = distF[p] + d;
+                meetFrom = p;
+                meetTo = u;
+            }
+        }
+    }
+
+    /**
+     * 沿前驱数组从 target 回溯到 source
+     */
+    private static int[] trace(int[] pred, int source, int target) {
+        int length = 1;
+        for (int p = target; p != source; p = pred[p]) length++;
+        int[] path = new int[length];
+        for (int p = target, i = length - 1; i >= 0; p = pred[p], i--) path[i] = p;
+        return path;
+    }
+}
@@ -0,0 +1,198 @@
+package software.engineer;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * 从大图中抽取用于展示的子图
+ * 顶点多时 Graphviz 布局耗时随图的规模急剧增长，只渲染查询单词（或突出显示的路径）附近的 k 跳邻域，
+ * 或者权重最大的 N 条边，使渲染耗时与语料规模无关
+ * 返回的子图是新的 {@link AdjListGraph}，顶点名称与边权重与原图一致
+ */
+class Subgraph {
+    private Subgraph() {
+    }
+
+    /**
+     * 大图的展示视口：记住最近展示的子图，新的路径完全落在其中时返回同一个子图对象，
+     * 使 {@link GraphRenderer} 的布局缓存命中（逐步展示随机游走、查询相邻的最短路径时不重新布局）
+     * 图改变后调用 {@link #graphChanged()}
+     */
+    static final class Viewport {
+        private final int maxVertexes;
+        private final int hops;
+        private Graph source;   // 以下子图所属的图
+        private Graph shown;    // 最近展示的路径子图
+        private Graph overview; // 权重最大的边
+
+        /**
+         * @param maxVertexes 顶点数上限，不超过时直接展示整个图
+         * @param hops 路径周围的跳数
+         */
+        Viewport(int maxVertexes, int hops) {
+            this.maxVertexes = maxVertexes;
+            this.hops = hops;
+        }
+
+        /**
+         * @param vertexes 路径上的顶点编号
+         * @return 用于展示路径的图：graph 本身，或包含全部路径顶点的子图（尽量复用上一次的子图）
+         */
+        Graph path(Graph graph, int[] vertexes) {
+            if (graph.size() <= maxVertexes) return graph;
+            if (source != graph) graphChanged();
+            source = graph;
+            if (shown == null || !covers(shown, graph, vertexes)) shown = neighborhood(graph, vertexes, hops, maxVertexes);
+            return shown;
+        }
+
+        /**
+         * @return 权重最大的 maxVertexes / 2 条边组成的子图（图不变时返回同一个对象）
+         */
+        Graph overview(Graph graph) {
+            if (source != graph) graphChanged();
+            source = graph;
+            if (overview == null) overview = topEdges(graph, maxVertexes / 2);
+            return overview;
+        }
+
+        /**
+         * 图发生改变，之后重新抽取子图
+         */
+        void graphChanged() {
+            shown = null;
+            overview = null;
+        }
+
+        /**
+         * 导出子图包含其中任意两个顶点之间的所有边，所以只需检查顶点
+         */
+        private static boolean covers(Graph subgraph, Graph graph, int[] vertexes) {
+            for (int v : vertexes) {
+                if (!subgraph.containsVertex(graph.getVertex(v))) return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 抽取 seeds 周围 hops 跳以内（沿出边与入边）的顶点及它们之间的边
+     * 按层广度优先扩展，顶点数达到 maxVertexes 后停止扩展；seeds 总是包含在内
+     * @param graph 有向图
+     * @param seeds 中心顶点编号
+     * @param hops 跳数
+     * @param maxVertexes 顶点数上限
+     */
+    public static Graph neighborhood(Graph graph, int[] seeds, int hops, int maxVertexes) {
+        int n = graph.size();
+        Expansion expansion = new Expansion(n, Math.min(n, Math.max(maxVertexes, seeds.length)));
+        for (int s : seeds) {
+            if (s >= 0 && s < n) expansion.add(s);
+        }
+        int[] vertexes = expansion.vertexes;
+        int begin = 0;
+        for (int hop = 0; hop < hops && !expansion.isFull(); hop++) {
+            int end = expansion.count;
+            for (int i = begin; i < end && !expansion.isFull(); i++) {
+                expansion.current = vertexes[i];
+                graph.forEachOutEdge(vertexes[i], expansion);
+                graph.forEachInEdge(vertexes[i], expansion);
+            }
+            if (end == expansion.count) break;
+            begin = end;
+        }
+        return induced(graph, Arrays.copyOf(vertexes, expansion.count), expansion.index);
+    }
+
+    /**
+     * 广度优先扩展的状态，作为访问 current 的出边与入边的 {@link EdgeVisitor}，把另一端加入子图
+     */
+    private static final class Expansion implements EdgeVisitor {
+        final int[] index; // 原图编号 -> 子图编号 + 1，0 表示不在子图中
+        final int[] vertexes;
+        int count;
+        int current;
+
+        Expansion(int n, int capacity) {
+            this.index = new int[n];
+            this.vertexes = new int[capacity];
+        }
+
+        boolean isFull() {
+            return count == vertexes.length;
+        }
+
+        void add(int v) {
+            if (isFull() || index[v] != 0) return;
+            vertexes[count++] = v;
+            index[v] = count;
+        }
+
+        @Override
+        public void visit(int from, int to, int weight) {
+            add(from == current ? to : from);
+        }
+    }
+
+    /**
+     * 抽取权重最大的 count 条边（权重相同时按起点、终点编号）及其端点
+     */
+    public static Graph topEdges(Graph graph, int count) {
+        PriorityQueue<long[]> heap = new PriorityQueue<>(Math.max(1, count), Subgraph::compare); // 堆顶为已选中的最小边
+        if (count > 0) {
+            graph.forEachEdge((v, w, weight) -> {
+                if (heap.size() == count) {
+                    long[] min = heap.peek();
+                    // 不大于已选中的最小边时直接跳过，不创建数组
+                    if (weight < min[0] || (weight == min[0] && (v > min[1] || (v == min[1] && w > min[2])))) return;
+                    heap.poll();
+                }
+                heap.add(new long[]{weight, v, w});
+            });
+        }
+        long[][] edges = heap.toArray(new long[0][]);
+        Arrays.sort(edges, (a, b) -> compare(b, a));
+        int[] index = new int[graph.size()];
+        int[] vertexes = new int[2 * edges.length];
+        int size = 0;
+        for (long[] edge : edges) {
+            for (int k = 1; k <= 2; k++) {
+                int v = (int) edge[k];
+                if (index[v] != 0) continue;
+                vertexes[size++] = v;
+                index[v] = size;
+            }
+        }
+        Graph subgraph = vertexesOf(graph, Arrays.copyOf(vertexes, size));
+        for (long[] edge : edges) subgraph.addEdge(index[(int) edge[1]] - 1, index[(int) edge[2]] - 1, (int) edge[0]);
+        return subgraph;
+    }
+
+    /**
+     * 权重大者为大，权重相同时编号小者为大（保证结果确定）
+     */
+    private static int compare(long[] a, long[] b) {
+        if (a[0] != b[0]) return Long.compare(a[0], b[0]);
+        if (a[1] != b[1]) return Long.compare(b[1], a[1]);
+        return Long.compare(b[2], a[2]);
+    }
+
+    /**
+     * 导出子图：vertexes 中的顶点与它们之间的所有边
+     * @param index 原图编号 -> 子图编号 + 1
+     */
+    private static Graph induced(Graph graph, int[] vertexes, int[] index) {
+        Graph subgraph = vertexesOf(graph, vertexes);
+        EdgeVisitor copy = (v, w, weight) -> {
+            if (index[w] != 0) subgraph.addEdge(index[v] - 1, index[w] - 1, weight);
+        };
+        for (int v : vertexes) graph.forEachOutEdge(v, copy);
+        return subgraph;
+    }
+
+    private static Graph vertexesOf(Graph graph, int[] vertexes) {
+        String[] names = new String[vertexes.length];
+        for (int i = 0; i < vertexes.length; i++) names[i] = graph.getVertex(vertexes[i]);
+        return new AdjListGraph(names);
+    }
+}
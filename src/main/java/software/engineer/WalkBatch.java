@@ -0,0 +1,70 @@
+package software.engineer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * 批量并行随机游走
+ * 每次游走使用独立的 SplittableRandom，按游走序号依次从同一个种子拆分得到，
+ * 因此相同种子的结果与线程数、调度顺序无关；游走按块并行执行，结果按序号顺序写入输出
+ */
+class WalkBatch {
+    private static final int BLOCK_SIZE = 4096;
+
+    private final RandomWalker walker;
+
+    public WalkBatch(RandomWalker walker) {
+        this.walker = walker;
+    }
+
+    /**
+     * 执行 count 次游走，每次游走输出一行 "a-->b-->c"
+     * @param count 游走次数
+     * @param seed 随机种子
+     * @param out 输出（内部套一层缓冲）
+     * @return 统计信息
+     */
+    public Result run(long count, long seed, Writer out) throws IOException {
+        long begin = System.nanoTime();
+        LongAdder steps = new LongAdder();
+        SplittableRandom root = new SplittableRandom(seed);
+        int n = walker.getGraph().size();
+        BufferedWriter writer = new BufferedWriter(out, 1 << 16);
+        SplittableRandom[] randoms = new SplittableRandom[BLOCK_SIZE];
+        String[] lines = new String[BLOCK_SIZE];
+        for (long done = 0; done < count && n > 0; done += BLOCK_SIZE) {
+            int block = (int) Math.min(BLOCK_SIZE, count - done);
+            for (int i = 0; i < block; i++) randoms[i] = root.split();
+            IntStream.range(0, block).parallel().forEach(i -> {
+                SplittableRandom random = randoms[i];
+                RandomWalker.Walk walk = walker.walk(random.nextInt(n), random, () -> false);
+                steps.add(walk.length() - 1);
+                lines[i] = walk.format();
+            });
+            for (int i = 0; i < block; i++) {
+                writer.write(lines[i]);
+                writer.newLine();
+            }
+        }
+        writer.flush();
+        return new Result(n > 0 ? count : 0, steps.sum(), System.nanoTime() - begin);
+    }
+
+    /**
+     * @param walks 游走次数
+     * @param steps 总步数
+     * @param nanos 耗时（纳秒）
+     */
+    record Result(long walks, long steps, long nanos) {
+        @Override
+        public String toString() {
+            double seconds = nanos / 1e9;
+            return String.format("%d walks, %d steps in %.3f s (%.0f walks/s, %.0f steps/s)",
+                    walks, steps, seconds, walks / seconds, steps / seconds);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package software.engineer;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * 单词表：单词与顶点编号 0..size-1 之间的双向映射（只读）
+ * {@link CsrGraph} 通过它查找顶点，实现可以在堆内（{@link CompactDictionary}）或堆外（{@link OffHeapDictionary}）
+ */
+interface WordDictionary {
+    int size();
+
+    /**
+     * @return 单词的编号，不存在时返回 -1
+     */
+    int id(String word);
+
+    /**
+     * @return 编号为 id 的单词
+     */
+    String word(int id);
+
+    /**
+     * @return 按编号排列的单词列表（只读视图）
+     */
+    default List<String> words() {
+        class Words extends AbstractList<String> implements RandomAccess {
+            @Override
+            public String get(int index) {
+                return word(index);
+            }
+
+            @Override
+            public int size() {
+                return WordDictionary.this.size();
+            }
+        }
+        return new Words();
+    }
+}
@@ -0,0 +1,98 @@
+package software.engineer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * 流式分词器
+ * 逐字符扫描输入，连续的英文字母（A-Z, a-z）组成一个单词，其余字符均视为分隔符，
+ * 单词转为小写后直接交给下游（如 {@link GraphBuilder}），不在内存中保留整个文本
+ * 下游只需要单词编号时使用 {@link #tokenize(Reader, Interner, IntConsumer)}，不为每次出现的单词创建 String
+ */
+class WordTokenizer {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * 按 UTF-8 字节查找单词，不存在时添加（如 {@link CompactDictionary#intern(byte[], int, int)}）
+     */
+    interface Interner {
+        /**
+         * @return 单词 word[start, start+length) 的编号，word 的内容在返回后会被覆盖
+         */
+        int intern(byte[] word, int start, int length);
+    }
+
+    private WordTokenizer() {
+    }
+
+    /**
+     * 读取 reader 直到结束，依次输出每个小写单词
+     * @param reader 输入（无需带缓冲，内部按块读取）
+     * @param sink 单词的接收者
+     */
+    public static void tokenize(Reader reader, Consumer<String> sink) throws IOException {
+        char[] buffer = new char[BUFFER_SIZE];
+        char[] word = new char[32];
+        int length = 0;
+        int n;
+        while ((n = reader.read(buffer)) != -1) {
+            for (int i = 0; i < n; i++) {
+                char c = buffer[i];
+                if (c >= 'a' && c <= 'z') {
+                    if (length == word.length) word = Arrays.copyOf(word, length * 2);
+                    word[length++] = c;
+                } else if (c >= 'A' && c <= 'Z') {
+                    if (length == word.length) word = Arrays.copyOf(word, length * 2);
+                    word[length++] = (char) (c + ('a' - 'A'));
+                } else if (length > 0) {
+                    sink.accept(new String(word, 0, length));
+                    length = 0;
+                }
+            }
+        }
+        if (length > 0) sink.accept(new String(word, 0, length));
+    }
+
+    /**
+     * 读取 reader 直到结束，将每个小写单词加入 dictionary，依次输出它的编号
+     * 单词按字节在单词表中查找，只有第一次出现的单词会被复制进单词表，其余出现不分配任何对象
+     * @param reader 输入（无需带缓冲，内部按块读取）
+     * @param dictionary 单词表，新单词追加到末尾
+     * @param sink 单词编号的接收者
+     */
+    public static void tokenize(Reader reader, CompactDictionary dictionary, IntConsumer sink) throws IOException {
+        tokenize(reader, (Interner) dictionary::intern, sink);
+    }
+
+    /**
+     * 读取 reader 直到结束，依次输出每个小写单词经 interner 得到的编号
+     * @param reader 输入（无需带缓冲，内部按块读取）
+     * @param interner 单词 -> 编号
+     * @param sink 单词编号的接收者
+     */
+    public static void tokenize(Reader reader, Interner interner, IntConsumer sink) throws IOException {
+        char[] buffer = new char[BUFFER_SIZE];
+        byte[] word = new byte[32];
+        int length = 0;
+        int n;
+        while ((n = reader.read(buffer)) != -1) {
+            for (int i = 0; i < n; i++) {
+                char c = buffer[i];
+                if (c >= 'a' && c <= 'z') {
+                    if (length == word.length) word = Arrays.copyOf(word, length * 2);
+                    word[length++] = (byte) c;
+                } else if (c >= 'A' && c <= 'Z') {
+                    if (length == word.length) word = Arrays.copyOf(word, length * 2);
+                    word[length++] = (byte) (c + ('a' - 'A'));
+                } else if (length > 0) {
+                    sink.accept(interner.intern(word, 0, length));
+                    length = 0;
+                }
+            }
+        }
+        if (length > 0) sink.accept(interner.intern(word, 0, length));
+    }
+}
@@ -8,10 +8,27 @@ import guru.nidi.graphviz.model.Node;
 import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import static guru.nidi.graphviz.attribute.Rank.RankDir.LEFT_TO_RIGHT;
 import static guru.nidi.graphviz.model.Factory.graph;
@@ -111,6 +128,714 @@ public class AppTest
         }
     }
 
+    public void testAdjListGraph() throws Exception {
+        String[] words = new InputFile(new String[]{"-f", "article.txt"}).getWords();
+        Graph list = App.buildGraph(words, "list");
+        Graph matrix = App.buildGraph(words, "matrix");
+        assertEquals(matrix.size(), list.size());
+        assertEquals(new HashSet<>(matrix.getEdges()), new HashSet<>(list.getEdges()));
+        assertEquals(matrix.getEdge("brown", "fox"), list.getEdge("brown", "fox"));
+        assertEquals(-1, list.getEdge("brown", "nothing"));
+        for (String v : matrix.getVertexes()) {
+            assertEquals(new HashSet<>(matrix.getNeighbors(v)), new HashSet<>(list.getNeighbors(v)));
+        }
+    }
+
+    public void testStreamingBuild() throws Exception {
+        InputFile inputFile = new InputFile(new String[]{"-f", "article.txt"});
+        String[] words = inputFile.getWords();
+        assertEquals("the", words[0]);
+        for (String word : words) assertTrue(word.matches("[a-z]+"));
+        Graph expected = App.buildGraph(words, "list");
+        for (String type : new String[]{"list", "matrix"}) {
+            Graph streamed = App.buildGraph(inputFile, type, false);
+            assertEquals(expected.size(), streamed.size());
+            assertEquals(new HashSet<>(expected.getEdges()), new HashSet<>(streamed.getEdges()));
+        }
+        // 块很小时大量单词对跨越块边界
+        for (int chunkSize : new int[]{1, 7, 64}) {
+            ParallelGraphLoader loader = new ParallelGraphLoader(java.util.concurrent.ForkJoinPool.commonPool(), chunkSize);
+            Graph parallel = loader.load("article.txt");
+            assertEquals(expected.getVertexes(), parallel.getVertexes());
+            assertEquals(new HashSet<>(expected.getEdges()), new HashSet<>(parallel.getEdges()));
+        }
+
+        List<String> tokens = new ArrayList<>();
+        WordTokenizer.tokenize(new java.io.StringReader("  Hello, World!--it's\n2024 OK"), tokens::add);
+        assertEquals(Arrays.asList("hello", "world", "it", "s", "ok"), tokens);
+    }
+
+    public void testCompactDictionary() throws Exception {
+        CompactDictionary dictionary = new CompactDictionary(2);
+        for (int i = 0; i < 1000; i++) assertEquals(i, dictionary.intern("w" + i));
+        assertEquals(17, dictionary.intern("w17"));
+        assertEquals(1000, dictionary.size());
+        assertEquals("w999", dictionary.word(999));
+        assertEquals(-1, dictionary.id("w1000"));
+        byte[] bytes = "xxw42yy".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(42, dictionary.id(bytes, 2, 3));
+        assertEquals(1000, dictionary.intern("naïve"));
+        assertEquals(1000, dictionary.id("naïve"));
+        assertEquals("naïve", dictionary.word(1000));
+        assertEquals(-1, dictionary.id("naive"));
+
+        CompactDictionary words = new CompactDictionary();
+        List<Integer> ids = new ArrayList<>();
+        WordTokenizer.tokenize(new StringReader("  Hello, World!--it's\n2024 OK hello"), words, ids::add);
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 0), ids);
+        assertEquals(Arrays.asList("hello", "world", "it", "s", "ok"), words.words());
+    }
+
+    public void testGraphSnapshot() throws Exception {
+        Graph graph = App.buildGraph(new InputFile(new String[]{"-f", "article.txt"}), "list", false);
+        File file = File.createTempFile("graph", ".bin");
+        file.deleteOnExit();
+        GraphSnapshot.write(graph, file.getPath());
+        Graph loaded = GraphSnapshot.load(file.getPath());
+        assertEquals(graph.getVertexes(), loaded.getVertexes());
+        assertEquals(new HashSet<>(graph.getEdges()), new HashSet<>(loaded.getEdges()));
+        for (int v = 0; v < graph.size(); v++) {
+            int[] expected = graph.getPredecessors(v), actual = loaded.getPredecessors(v);
+            Arrays.sort(expected);
+            assertTrue(Arrays.equals(expected, actual));
+        }
+        assertEquals(graph.getEdge("brown", "fox"), loaded.getEdge("brown", "fox"));
+        assertEquals(0, loaded.getEdge("fox", "brown"));
+
+        // 同时指定 -t 时转换为对应的结构
+        for (String type : new String[]{"list", "matrix", "concurrent"}) {
+            Graph converted = App.convert(loaded, type);
+            assertEquals(App.buildGraph(new String[]{"a"}, type).getClass(), converted.getClass());
+            assertEquals(new HashSet<>(graph.getEdges()), new HashSet<>(converted.getEdges()));
+        }
+    }
+
+    public void testIncrementalAppend() throws Exception {
+        Random random = new Random(3);
+        StringBuilder first = new StringBuilder(), second = new StringBuilder();
+        for (int i = 0; i < 500; i++) first.append("w").append(random.nextInt(40)).append(' ');
+        for (int i = 0; i < 500; i++) second.append("w").append(random.nextInt(60)).append(' ');
+        for (Graph graph : new Graph[]{new AdjListGraph(), new AdjMatrixGraph()}) {
+            GraphBuilder builder = new GraphBuilder(graph);
+            builder.append(new java.io.StringReader(first.toString()));
+            BridgeIndex index = new BridgeIndex(graph);
+            builder.addListener(index);
+            builder.append(new java.io.StringReader(second.toString()));
+
+            BridgeIndex rebuilt = new BridgeIndex(graph);
+            for (int a = 0; a < graph.size(); a++) {
+                for (int c = 0; c < graph.size(); c++) {
+                    assertTrue(Arrays.equals(rebuilt.bridges(a, c), index.bridges(a, c)));
+                }
+            }
+        }
+    }
+
+    public void testRandomWalker() throws Exception {
+        // a -> b 权重 3，a -> c 权重 1
+        Graph g = App.buildGraph(new String[]{"a", "b", "a", "b", "a", "b", "a", "c"}, "list");
+        int a = g.getVertex("a"), b = g.getVertex("b"), c = g.getVertex("c");
+        java.util.SplittableRandom random = new java.util.SplittableRandom(1);
+        RandomWalker weighted = new RandomWalker(g, true), uniform = new RandomWalker(g, false);
+        int weightedB = 0, uniformB = 0;
+        for (int i = 0; i < 100000; i++) {
+            if (weighted.next(a, random) == b) weightedB++;
+            if (uniform.next(a, random) == b) uniformB++;
+        }
+        assertEquals(0.75, weightedB / 100000.0, 0.01);
+        assertEquals(0.5, uniformB / 100000.0, 0.01);
+        assertEquals(-1, weighted.next(c, random));
+
+        for (int i = 0; i < 100; i++) {
+            RandomWalker.Walk walk = weighted.walk(a, random, () -> false);
+            int[] path = walk.vertexes();
+            if (walk.reason() == RandomWalker.StopReason.DEAD_END) {
+                assertEquals(c, path[path.length - 1]);
+            } else {
+                assertEquals(RandomWalker.StopReason.REPEATED_EDGE, walk.reason());
+                Set<Long> edges = new HashSet<>();
+                for (int k = 1; k < path.length - 1; k++) assertTrue(edges.add((long) path[k - 1] << 32 | path[k]));
+                assertTrue(edges.contains((long) path[path.length - 2] << 32 | path[path.length - 1]));
+            }
+        }
+        RandomWalker.Walk cancelled = weighted.walk(a, random, () -> true);
+        assertEquals(RandomWalker.StopReason.CANCELLED, cancelled.reason());
+        assertEquals("a", cancelled.format());
+    }
+
+    public void testWalkBatch() throws Exception {
+        Graph g = App.buildGraph(new InputFile(new String[]{"-f", "article.txt"}), "list", false);
+        WalkBatch batch = new WalkBatch(new RandomWalker(g, true));
+        java.io.StringWriter first = new java.io.StringWriter(), second = new java.io.StringWriter();
+        WalkBatch.Result result = batch.run(10000, 5, first);
+        batch.run(10000, 5, second);
+        assertEquals(10000, result.walks());
+        assertEquals(first.toString(), second.toString());
+        String[] lines = first.toString().split("\n");
+        assertEquals(10000, lines.length);
+        long steps = 0;
+        for (String line : lines) steps += line.split("-->").length - 1;
+        assertEquals(result.steps(), steps);
+    }
+
+    public void testDistanceTable() throws Exception {
+        Random random = new Random(9);
+        String[] sparse = new String[600], dense = new String[3000];
+        for (int i = 0; i < sparse.length; i++) sparse[i] = "w" + random.nextInt(300);
+        for (int i = 0; i < dense.length; i++) dense[i] = "w" + random.nextInt(30);
+        for (String[] words : new String[][]{sparse, dense}) {
+            Graph g = App.buildGraph(words, "list");
+            File file = File.createTempFile("apsp", ".bin");
+            file.deleteOnExit();
+            DistanceTable.compute(g, file.getPath());
+            DistanceTable table = DistanceTable.load(file.getPath(), g);
+            for (int s = 0; s < g.size(); s++) {
+                ShortestPaths paths = ShortestPaths.compute(g, s);
+                for (int t = 0; t < g.size(); t++) {
+                    assertEquals(paths.distance(t), table.distance(s, t));
+                    Path p = table.path(s, t);
+                    int length = 0;
+                    for (int i = 1; i < p.vertexes().length; i++) length += g.getEdge(p.vertexes()[i - 1], p.vertexes()[i]);
+                    if (p.isReachable()) assertEquals(p.length(), length);
+                }
+            }
+        }
+
+        Graph shorter = App.buildGraph("a b a b".split(" "), "list"), longer = App.buildGraph("a b a b a b".split(" "), "list");
+        File file = File.createTempFile("apsp", ".bin");
+        file.deleteOnExit();
+        DistanceTable.compute(shorter, file.getPath());
+        DistanceTable.load(file.getPath(), shorter);
+        assertTrue(DistanceTable.matches(file.getPath(), shorter));
+        assertFalse(DistanceTable.matches(file.getPath(), longer));
+        assertFalse(DistanceTable.matches(file.getPath() + ".missing", shorter));
+        assertEquals(800_000_028L, DistanceTable.fileBytes(10_000));
+        try {
+            DistanceTable.load(file.getPath(), longer);
+            fail("distance table of a different graph was accepted");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("does not match"));
+        }
+    }
+
+    public void testQueryCache() {
+        QueryCache<String, String> cache = new QueryCache<>("test", 2, 100, (k, v) -> k.length() + v.length());
+        assertEquals("A", cache.get("a", String::toUpperCase));
+        assertEquals("B", cache.get("b", String::toUpperCase));
+        assertEquals("A", cache.get("a", k -> "stale"));
+        assertEquals("C", cache.get("c", String::toUpperCase)); // 淘汰最久未使用的 b
+        assertEquals("b2", cache.get("b", k -> "b2"));
+        assertEquals(1, cache.hits());
+        assertEquals(4, cache.misses());
+
+        cache.put("long", "x".repeat(95)); // 超出内存上限，淘汰其余条目
+        assertEquals(1, cache.size());
+        cache.put("huge", "x".repeat(200)); // 单个条目超过上限，不缓存
+        assertEquals(1, cache.size());
+
+        cache.invalidate();
+        assertEquals(0, cache.size());
+        // 计算过程中图发生变化，结果不放入缓存
+        assertEquals("v", cache.get("k", k -> {
+            cache.invalidate();
+            return "v";
+        }));
+        assertEquals(0, cache.size());
+    }
+
+    public void testGraphRenderer() throws Exception {
+        Graph g = App.buildGraph(new String[]{"a", "b", "c", "a"}, "list");
+        GraphRenderer renderer = new GraphRenderer();
+        File file = File.createTempFile("graph", ".svg");
+        file.deleteOnExit();
+        renderer.render(g, new ArrayList<>(), file.getPath());
+        Document document = renderer.render(g, List.of(new Edge("a", "b", 1)), file.getPath());
+        assertEquals(1, renderer.layouts()); // 只布局一次
+        String highlighted = GraphRenderer.edgeId(g.getVertex("a"), g.getVertex("b"));
+        String plain = GraphRenderer.edgeId(g.getVertex("b"), g.getVertex("c"));
+        assertTrue(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).contains("stroke=\"red\""));
+        assertEquals("red", ((Element) document.getElementById(highlighted).getElementsByTagName("path").item(0)).getAttribute("stroke"));
+        assertEquals("black", ((Element) document.getElementById(plain).getElementsByTagName("path").item(0)).getAttribute("stroke"));
+
+        renderer.graphChanged(g);
+        renderer.render(g, new ArrayList<>(), file.getPath());
+        assertEquals(2, renderer.layouts());
+
+        // 顶点数超过渲染上限的图：随机游走逐步展示时路径仍在上一次的子图中，复用同一个子图与布局
+        String[] chain = new String[100];
+        for (int i = 0; i < chain.length; i++) chain[i] = "v" + i;
+        Graph large = App.buildGraph(chain, "list");
+        Subgraph.Viewport viewport = new Subgraph.Viewport(20, 1);
+        GraphRenderer paths = new GraphRenderer();
+        Graph first = viewport.path(large, new int[]{10, 11, 12});
+        paths.render(first, List.of(new Edge("v10", "v11", 1), new Edge("v11", "v12", 1)), file.getPath());
+        Graph second = viewport.path(large, new int[]{10, 11, 12, 13});
+        paths.render(second, List.of(new Edge("v10", "v11", 1), new Edge("v11", "v12", 1), new Edge("v12", "v13", 1)), file.getPath());
+        assertSame(first, second);
+        assertEquals(1, paths.layouts());
+        // 离开子图时重新抽取
+        Graph far = viewport.path(large, new int[]{50, 51});
+        assertNotSame(first, far);
+        assertTrue(far.containsVertex("v50") && far.containsVertex("v51"));
+        assertSame(viewport.overview(large), viewport.overview(large));
+        viewport.graphChanged();
+        assertNotSame(far, viewport.path(large, new int[]{50, 51}));
+    }
+
+    public void testSubgraph() throws Exception {
+        // a->b->c->d->e，b->c 出现两次
+        Graph g = App.buildGraph(new String[]{"a", "b", "c", "d", "e", "x", "b", "c"}, "list");
+        Graph one = Subgraph.neighborhood(g, new int[]{g.getVertex("c")}, 1, 100);
+        assertEquals(Set.of("b", "c", "d"), new HashSet<>(one.getVertexes()));
+        assertEquals(2, one.getEdge("b", "c"));
+        assertEquals(1, one.getEdge("c", "d"));
+        assertFalse(one.containsVertex("a"));
+
+        Graph two = Subgraph.neighborhood(g, new int[]{g.getVertex("c")}, 2, 100);
+        assertEquals(Set.of("a", "b", "c", "d", "e", "x"), new HashSet<>(two.getVertexes()));
+        Graph capped = Subgraph.neighborhood(g, new int[]{g.getVertex("c")}, 5, 2);
+        assertEquals(2, capped.size());
+        assertEquals("c", capped.getVertex(0));
+
+        Graph top = Subgraph.topEdges(g, 2);
+        assertEquals(2, top.getEdges().size());
+        assertEquals(2, top.getEdge("b", "c"));
+        assertEquals(1, top.getEdge("a", "b")); // 权重相同时取编号小的边
+        assertEquals(0, Subgraph.topEdges(g, 0).size());
+    }
+
+    public void testQueryBatch() throws Exception {
+        Graph g = App.buildGraph(new String[]{"a", "b", "c", "a", "d", "c", "x"}, "list");
+        QueryBatch batch = new QueryBatch(g, new BridgeIndex(g), null);
+        String queries = "bridge a c\n# comment\n\nbridge b a\nbridge a y\npath a x\npath x a\npath b\n"
+                + "text A C\ntext C A\nfoo\n";
+        StringWriter out = new StringWriter();
+        QueryBatch.Result result = batch.run(new StringReader(queries.repeat(1000)), 42, out);
+        assertEquals(9000, result.queries());
+        String[] lines = out.toString().split("\n");
+        assertEquals(9000, lines.length);
+        assertEquals("The bridge words from \"a\" to \"c\" are: b, and d.", lines[0]);
+        assertEquals("The bridge word from \"b\" to \"a\" is: c", lines[1]);
+        assertEquals("No \"a\" or \"y\" in the graph!", lines[2]);
+        assertTrue(lines[3].startsWith("(3): a-->") && lines[3].endsWith("-->c-->x"));
+        assertEquals("(-1): x -x a 不可达", lines[4]);
+        assertTrue(lines[5].startsWith("(2): b-->c-->a; (0): b; "));
+        assertTrue(lines[6].equals("A b C") || lines[6].equals("A d C"));
+        assertEquals("C A", lines[7]);
+        assertEquals("Invalid query: foo", lines[8]);
+        assertEquals(lines[9], lines[0]);
+
+        // 相同种子结果相同
+        StringWriter again = new StringWriter();
+        batch.run(new StringReader(queries.repeat(1000)), 42, again);
+        assertEquals(out.toString(), again.toString());
+    }
+
+    public void testQueryServer() throws Exception {
+        Graph g = App.buildGraph(new String[]{"a", "b", "c", "a", "d", "c", "x"}, "list");
+        QueryServer server = new QueryServer(g, null, 0, 2);
+        server.start();
+        try {
+            g.addEdge("x", "a"); // 服务使用启动时的快照
+            assertEquals("{\"from\":\"a\",\"to\":\"c\",\"bridges\":[\"b\",\"d\"]}", get(server, "/bridge?from=a&to=C"));
+            assertEquals("{\"from\":\"x\",\"to\":\"a\",\"length\":-1,\"path\":[]}", get(server, "/path?from=x&to=a"));
+            assertEquals("{\"from\":\"b\",\"to\":\"a\",\"length\":2,\"path\":[\"b\",\"c\",\"a\"]}", get(server, "/path?from=b&to=a"));
+            assertTrue(get(server, "/path?from=x").startsWith("{\"from\":\"x\",\"paths\":[{\"to\":\"x\",\"length\":0"));
+            String text = get(server, "/text?text=A%20C&seed=7");
+            assertTrue(text.equals("{\"text\":\"A b C\"}") || text.equals("{\"text\":\"A d C\"}"));
+            assertEquals(text, get(server, "/text?text=A%20C&seed=7"));
+            assertTrue(get(server, "/bridge?from=a&to=y").startsWith("404 "));
+            assertTrue(get(server, "/bridge?from=a").startsWith("400 "));
+        } finally {
+            server.stop();
+        }
+        assertEquals("\"a\\\"b\\n\"", QueryServer.quote("a\"b\n"));
+    }
+
+    private static String get(QueryServer server, String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort() + path).openConnection();
+        int status = connection.getResponseCode();
+        InputStream in = status == 200 ? connection.getInputStream() : connection.getErrorStream();
+        String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        return status == 200 ? body : status + " " + body;
+    }
+
+    public void testConcurrentGraph() throws Exception {
+        Random random = new Random(7);
+        String[] texts = new String[8];
+        for (int i = 0; i < texts.length; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int j = 0; j < 5000; j++) {
+                text.append((char) ('a' + random.nextInt(26))).append((char) ('a' + random.nextInt(8))).append(' ');
+            }
+            texts[i] = text.toString();
+        }
+        GraphBuilder expected = new GraphBuilder(new AdjListGraph());
+        for (String text : texts) expected.append(new StringReader(text));
+
+        ConcurrentGraph graph = new ConcurrentGraph();
+        AtomicBoolean done = new AtomicBoolean();
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                CsrGraph snapshot = graph.snapshot();
+                for (int v = 0; v < snapshot.size(); v++) {
+                    for (int w : snapshot.getNeighbors(v)) {
+                        if (snapshot.getEdge(v, w) <= 0) errors.add(new AssertionError("empty edge in snapshot"));
+                    }
+                }
+            }
+        });
+        reader.start();
+        // 多个构建器同时添加同一个顶点或边时，只有一个收到新顶点或权重为 1 的新边
+        AtomicInteger vertexesAdded = new AtomicInteger(), edgesAdded = new AtomicInteger();
+        GraphListener listener = new GraphListener() {
+            @Override
+            public void vertexAdded(int v) {
+                vertexesAdded.incrementAndGet();
+            }
+
+            @Override
+            public void edgeAdded(int a, int b, int weight) {
+                if (weight == 1) edgesAdded.incrementAndGet();
+            }
+        };
+        List<Thread> writers = new ArrayList<>();
+        for (String text : texts) {
+            Thread writer = new Thread(() -> {
+                try {
+                    GraphBuilder builder = new GraphBuilder(graph);
+                    builder.addListener(listener);
+                    builder.append(new StringReader(text));
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            });
+            writers.add(writer);
+            writer.start();
+        }
+        for (Thread writer : writers) writer.join();
+        done.set(true);
+        reader.join();
+        assertTrue(errors.toString(), errors.isEmpty());
+
+        Graph list = expected.getGraph();
+        assertEquals(list.size(), graph.size());
+        assertEquals(list.getEdges().size(), graph.getEdges().size());
+        assertEquals(list.size(), vertexesAdded.get());
+        assertEquals(list.getEdges().size(), edgesAdded.get());
+        for (Edge edge : list.getEdges()) assertEquals(edge.value(), graph.getEdge(edge.from(), edge.to()));
+        CsrGraph snapshot = graph.snapshot();
+        assertEquals(list.getEdges().size(), snapshot.edgeCount());
+        for (int v = 0; v < graph.size(); v++) {
+            assertEquals(graph.getPredecessors(v).length, snapshot.getPredecessors(v).length);
+        }
+        assertEquals(graph.getVertex(3), snapshot.getVertex(3));
+    }
+
+    public void testOffHeapGraph() throws Exception {
+        String[] words = "the quick brown fox jumps over the lazy dog and the café fox jumps over the naïve dog".split(" ");
+        Graph expected = App.buildGraph(words, "list");
+        Graph graph = App.buildGraph(words, "offheap");
+        assertTrue(graph instanceof OffHeapGraph);
+        assertEquals(expected.getVertexes(), graph.getVertexes());
+        assertEquals(new HashSet<>(expected.getEdges()), new HashSet<>(graph.getEdges()));
+        assertEquals(expected.getVertex("café"), graph.getVertex("café"));
+        assertEquals(expected.getVertex("naïve"), graph.getVertex("naïve"));
+        assertEquals(-1, graph.getVertex("cafe"));
+        assertEquals(-1, graph.getVertex("missing"));
+        assertEquals(2, graph.getEdge("fox", "jumps"));
+        for (int v = 0; v < expected.size(); v++) {
+            assertEquals(expected.shortestPath(0, v).length(), graph.shortestPath(0, v).length());
+        }
+
+        File file = File.createTempFile("graph", ".bin");
+        file.deleteOnExit();
+        GraphSnapshot.write(graph, file.getPath());
+        CsrGraph loaded = GraphSnapshot.load(file.getPath(), true);
+        assertTrue(loaded instanceof OffHeapGraph);
+        assertEquals(expected.getVertexes(), loaded.getVertexes());
+        assertEquals(new HashSet<>(expected.getEdges()), new HashSet<>(loaded.getEdges()));
+        assertEquals(expected.getVertex("naïve"), loaded.getVertex("naïve"));
+        assertEquals(new BridgeIndex(expected).bridges("the", "fox"), new BridgeIndex(loaded).bridges("the", "fox"));
+
+        // 直接在堆外生成：单词表与单词编号文件都超过初始缓冲区
+        Random random = new Random(23);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 40000; i++) {
+            for (int j = 3 + random.nextInt(4); j > 0; j--) text.append((char) ('a' + random.nextInt(i % 7 == 0 ? 3 : 26)));
+            text.append(i % 11 == 0 ? ". " : " ");
+        }
+        GraphBuilder builder = new GraphBuilder(new AdjListGraph());
+        builder.append(new StringReader(text.toString()));
+        expected = builder.getGraph();
+        OffHeapGraph built = OffHeapGraph.build(new StringReader(text.toString()));
+        assertEquals(expected.getVertexes(), built.getVertexes());
+        assertEquals(new HashSet<>(expected.getEdges()), new HashSet<>(built.getEdges()));
+        for (int v = 0; v < expected.size(); v += 97) {
+            int[] predecessors = expected.getPredecessors(v);
+            Arrays.sort(predecessors);
+            assertTrue(Arrays.equals(predecessors, built.getPredecessors(v)));
+        }
+        BridgeIndex index = new BridgeIndex(expected), view = new BridgeIndex(built);
+        for (int a = 0; a < 60; a++) {
+            for (int c = 0; c < 60; c++) assertTrue(Arrays.equals(index.bridges(a, c), view.bridges(a, c)));
+        }
+        assertEquals(0, OffHeapGraph.build(new StringReader("")).size());
+        assertEquals(0, OffHeapGraph.build(new StringReader("single")).edgeCount());
+
+        // 缓冲区大小按 long 计算，不再溢出为很小的正数
+        assertTrue(OffHeapDictionary.maxDirectMemory() > 0);
+        try {
+            OffHeapDictionary.allocateInts((1L << 30) + 1);
+            fail();
+        } catch (IllegalArgumentException expectedFailure) {
+            assertTrue(expectedFailure.getMessage().contains("2GB"));
+        }
+    }
+
+    public void testPartitionedGraph() throws Exception {
+        Random random = new Random(11);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            text.append((char) ('a' + random.nextInt(26))).append((char) ('a' + random.nextInt(5))).append(' ');
+        }
+        GraphBuilder builder = new GraphBuilder(new AdjListGraph());
+        builder.append(new StringReader(text.toString()));
+        Graph expected = builder.getGraph();
+        BridgeIndex index = new BridgeIndex(expected);
+
+        try (PartitionedGraph graph = PartitionedGraph.launch(3)) {
+            graph.load(new StringReader(text.toString()));
+            assertEquals(expected.size(), graph.size());
+            assertEquals(expected.getEdges().size(), graph.edgeCount());
+            assertTrue(graph.containsVertex(expected.getVertex(7)));
+            assertFalse(graph.containsVertex("zz"));
+            for (int a = 0; a < 20; a++) {
+                for (int c = 0; c < 20; c++) {
+                    String word1 = expected.getVertex(a), word2 = expected.getVertex(c);
+                    assertEquals(index.bridges(word1, word2), graph.bridgeWords(word1, word2));
+                    assertEquals(expected.shortestPath(a, c).length(), graph.shortestPath(word1, word2).length());
+                }
+            }
+            List<String> walk = graph.randomWalk(expected.getVertex(0), false, new SplittableRandom(5));
+            Set<String> edges = new HashSet<>();
+            for (int i = 1; i < walk.size(); i++) {
+                assertTrue(expected.getEdge(walk.get(i - 1), walk.get(i)) > 0);
+                boolean repeated = !edges.add(walk.get(i - 1) + " " + walk.get(i));
+                assertEquals(i == walk.size() - 1 && repeated, repeated);
+            }
+
+            String[] weighted = graph.execute("walk " + expected.getVertex(0), true, new SplittableRandom(5)).split("-->");
+            for (int i = 1; i < weighted.length; i++) assertTrue(expected.getEdge(weighted[i - 1], weighted[i]) > 0);
+
+            StringWriter out = new StringWriter();
+            String word1 = expected.getVertex(1), word2 = expected.getVertex(2);
+            new QueryBatch((query, r) -> graph.execute(query, false, r)).run(new StringReader("bridge " + word1 + " " + word2 + "\npath " + word1 + " zz\n"), 1, out);
+            assertEquals(App.formatBridgeWords(word1, word2, graph.bridgeWords(word1, word2)) + "\n\"zz\" is not exist\n",
+                    out.toString().replace(System.lineSeparator(), "\n"));
+        }
+    }
+
+    public void testEdgeVisitor() throws Exception {
+        String[] words = {"a", "b", "c", "a", "b", "d", "a", "a", "c"};
+        Graph list = App.buildGraph(words, "list");
+        Graph[] graphs = {list, App.buildGraph(words, "matrix"), App.buildGraph(words, "concurrent"), CsrGraph.copyOf(list)};
+        for (Graph g : graphs) {
+            Set<String> edges = new HashSet<>();
+            g.forEachEdge((from, to, weight) -> edges.add(g.getVertex(from) + "->" + g.getVertex(to) + "=" + weight));
+            Set<String> expected = new HashSet<>();
+            for (Edge edge : list.getEdges()) expected.add(edge.from() + "->" + edge.to() + "=" + edge.value());
+            assertEquals(expected, edges);
+            for (int v = 0; v < g.size(); v++) {
+                int target = v;
+                List<Integer> in = new ArrayList<>();
+                g.forEachInEdge(v, (from, to, weight) -> {
+                    assertEquals(target, to);
+                    assertEquals(g.getEdge(from, to), weight);
+                    in.add(from);
+                });
+                int[] predecessors = g.getPredecessors(v);
+                assertEquals(predecessors.length, in.size());
+                for (int p : predecessors) assertTrue(in.contains(p));
+            }
+        }
+    }
+
+    public void testCoalescingExecutor() throws Exception {
+        List<String> rendered = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch started = new CountDownLatch(1), release = new CountDownLatch(1);
+        CoalescingExecutor<String> executor = new CoalescingExecutor<>("test-render", blockOn("a", started, release, rendered));
+        // "a" 执行期间提交的请求只保留最新的
+        executor.submit("a");
+        started.await();
+        executor.submit("b");
+        executor.submit("c");
+        release.countDown();
+        executor.awaitIdle();
+        assertEquals(List.of("a", "c"), rendered);
+
+        // 丢弃尚未开始的请求，并等待正在执行的请求结束
+        rendered.clear();
+        CountDownLatch started2 = new CountDownLatch(1), release2 = new CountDownLatch(1);
+        CoalescingExecutor<String> discarding = new CoalescingExecutor<>("test-render", blockOn("a", started2, release2, rendered));
+        discarding.submit("a");
+        started2.await();
+        discarding.submit("b");
+        assertTrue(discarding.hasPending());
+        Thread releaser = new Thread(() -> {
+            while (discarding.hasPending()) Thread.onSpinWait();
+            release2.countDown();
+        });
+        releaser.start();
+        discarding.discardPending();
+        releaser.join();
+        assertEquals(List.of("a"), rendered);
+        discarding.submit("d");
+        discarding.awaitIdle();
+        assertEquals(List.of("a", "d"), rendered);
+    }
+
+    /**
+     * 记录处理过的请求，处理 blocked 时等待 release
+     */
+    private static Consumer<String> blockOn(String blocked, CountDownLatch started, CountDownLatch release,
+                                            List<String> rendered) {
+        return request -> {
+            if (request.equals(blocked)) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            rendered.add(request);
+        };
+    }
+
+    public void testMetrics() throws Exception {
+        assertEquals(5, Metrics.Histogram.bucket(5));
+        for (long value : new long[]{0, 3, 4, 7, 8, 100, 12345, 1L << 40, Long.MAX_VALUE / 3}) {
+            int bucket = Metrics.Histogram.bucket(value);
+            assertTrue(value < Metrics.Histogram.upperBound(bucket));
+            assertTrue(bucket == 0 || value >= Metrics.Histogram.upperBound(bucket - 1));
+        }
+        Metrics.Histogram histogram = new Metrics.Histogram();
+        for (int i = 1; i <= 1000; i++) histogram.record(i * 1000L, 64);
+        assertEquals(1000, histogram.count());
+        assertEquals(1_000_000, histogram.max());
+        long p50 = histogram.percentile(0.5), p99 = histogram.percentile(0.99);
+        assertTrue(p50 >= 500_000 && p50 < 500_000 * 1.25);
+        assertTrue(p99 >= 990_000 && p99 <= 1_000_000);
+
+        long bridges = Metrics.Operation.BRIDGE.histogram.count();
+        long paths = Metrics.Operation.SHORTEST_PATH.histogram.count();
+        long texts = Metrics.Operation.TEXT.histogram.count();
+        Graph g = App.buildGraph(new String[]{"a", "b", "c"}, "list");
+        QueryBatch batch = new QueryBatch(g, new BridgeIndex(g), null);
+        // 未打开时不记录
+        batch.execute("bridge a c", new SplittableRandom(1));
+        g.shortestPath(0, 2);
+        assertEquals(bridges, Metrics.Operation.BRIDGE.histogram.count());
+        assertEquals(paths, Metrics.Operation.SHORTEST_PATH.histogram.count());
+        Metrics.setEnabled(true);
+        try {
+            batch.execute("bridge a c", new SplittableRandom(1));
+            g.shortestPath(0, 2);
+            // 生成新文本时逐对查询桥接词不单独记录
+            batch.execute("text a c a c", new SplittableRandom(1));
+        } finally {
+            Metrics.setEnabled(false);
+        }
+        assertEquals(bridges + 1, Metrics.Operation.BRIDGE.histogram.count());
+        assertEquals(paths + 1, Metrics.Operation.SHORTEST_PATH.histogram.count());
+        assertEquals(texts + 1, Metrics.Operation.TEXT.histogram.count());
+        String report = Metrics.report();
+        assertTrue(report, report.contains("bridge") && report.contains("path") && report.contains("p99"));
+
+        // 未打开时，录制期间同样记录并提交 JFR 事件
+        try (Recording recording = new Recording()) {
+            recording.enable("software.engineer.Operation").withThreshold(Duration.ZERO);
+            recording.start();
+            g.shortestPath(0, 2);
+            recording.stop();
+            File file = File.createTempFile("metrics", ".jfr");
+            file.deleteOnExit();
+            recording.dump(file.toPath());
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file.toPath());
+            assertTrue(events.stream().anyMatch(e -> "path".equals(e.getString("operation"))));
+        }
+    }
+
+    public void testVertexIndex() {
+        Graph matrix = new AdjMatrixGraph();
+        matrix.addVertex("a");
+        matrix.addVertex("b");
+        matrix.addVertex("a");
+        assertEquals(2, matrix.size());
+        assertEquals(1, matrix.getVertex("b"));
+        assertEquals(-1, matrix.getVertex("c"));
+        matrix.addEdge(0, 1);
+        matrix.addEdge(0, 1);
+        assertEquals(2, matrix.getEdge("a", "b"));
+        assertTrue(Arrays.equals(new int[]{1}, matrix.getNeighbors(0)));
+    }
+
+    public void testDijkstra() throws Exception {
+        Graph g = App.buildGraph(new String[]{"a", "b", "c", "a", "b", "c", "d", "a", "c"}, "list");
+        ShortestPaths paths = g.Dijkstra("a");
+        assertNull(g.Dijkstra("x"));
+        assertEquals(1, paths.distance(g.getVertex("c")));
+        assertEquals("(1): a-->c", paths.format(g, g.getVertex("c")));
+        assertEquals("(2): a-->c-->d", paths.format(g, g.getVertex("d")));
+        assertEquals(0, paths.distance(g.getVertex("a")));
+
+        Graph h = App.buildGraph(new String[]{"a", "b"}, "matrix");
+        ShortestPaths back = h.Dijkstra("b");
+        assertEquals(-1, back.distance(h.getVertex("a")));
+        assertEquals("(-1): b -x a 不可达", back.format(h, h.getVertex("a")));
+        assertEquals(0, back.path(h.getVertex("a")).vertexes().length);
+    }
+
+    public void testPointToPointShortestPath() throws Exception {
+        Random random = new Random(42);
+        String[] words = new String[2000];
+        for (int i = 0; i < words.length; i++) words[i] = "w" + random.nextInt(150);
+        for (String type : new String[]{"list", "matrix"}) {
+            Graph g = App.buildGraph(words, type);
+            for (int s = 0; s < g.size(); s += 7) {
+                ShortestPaths all = ShortestPaths.compute(g, s);
+                for (int t = 0; t < g.size(); t += 5) {
+                    Path p = g.shortestPath(s, t);
+                    assertEquals(all.distance(t), p.length());
+                    assertEquals(all.distance(t), ShortestPaths.pointToPoint(g, s, t).length());
+                    int length = 0;
+                    for (int i = 1; i < p.vertexes().length; i++) length += g.getEdge(p.vertexes()[i - 1], p.vertexes()[i]);
+                    if (p.isReachable()) assertEquals(p.length(), length);
+                }
+            }
+        }
+    }
+
+    public void testBridgeIndex() throws Exception {
+        Random random = new Random(7);
+        String[] words = new String[3000];
+        for (int i = 0; i < words.length; i++) words[i] = "w" + random.nextInt(80);
+        Graph g = App.buildGraph(words, "list");
+        BridgeIndex index = new BridgeIndex(g);
+        for (String a : g.getVertexes()) {
+            for (String c : g.getVertexes()) {
+                List<String> expected = new ArrayList<>();
+                for (String b : g.getNeighbors(a)) {
+                    if (g.getNeighbors(b).contains(c)) expected.add(b);
+                }
+                assertEquals(new HashSet<>(expected), new HashSet<>(index.bridges(a, c)));
+            }
+        }
+        assertTrue(index.bridges("w1", "nothing").isEmpty());
+    }
+
     public void testGraph() throws IOException {
         String[] vertexes = {"aa", "bb", "cc"};
         Edge[] edges = {new Edge("aa", "bb", 1), new Edge("bb", "cc", 1)};